@@ -1,16 +1,25 @@
 package com.mathgenerator;
 
+import com.mathgenerator.handler.BatchGrader;
 import com.mathgenerator.handler.FileHandler;
-import com.mathgenerator.generator.ExpressionGenerator;
-import com.mathgenerator.generator.ExpressionGenerator.ExpressionResult;
+import com.mathgenerator.handler.ProblemMerger;
+import com.mathgenerator.handler.SortingProblemMerger;
+import com.mathgenerator.handler.ProblemWriter;
+import com.mathgenerator.generator.ExpressionEnumerator;
+import com.mathgenerator.generator.ParallelGenerator;
 import com.mathgenerator.model.Fraction;
-import com.mathgenerator.service.ExpressionNormalizer;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
 
 /**
  * @author redmi k50 ultra
@@ -18,17 +27,76 @@ import java.util.Set;
  * @modified YiLaiL
  */
 public class Main {
+    /**
+     * 不带参数值的开关参数
+     */
+    private static final Set<String> FLAGS = new HashSet<>(Arrays.asList("-stream", "-verify", "-ranges", "-byindex", "-exhaustive", "-sort", "-backward"));
+
+    /**
+     * 穷举模式下不起作用的参数：穷举本身不重复，在当前线程完成，答案直接由树计算
+     */
+    private static final List<String> ENUMERATE_IGNORED = Arrays.asList("-j", "-verify", "-bloom", "-mem", "-backward");
+
+    private static final String ENUMERATE_ERROR = "Parameters %s have no effect with -exhaustive.";
+
+    private static final String SEED_ERROR = "Parameter -j has no effect with -seed: seeded runs generate on one thread; use -shard for parallelism.";
+
+    private static final String THREADS_ERROR = "Thread parameter -j must be greater than 0.";
+
+    private static final String SHARD_ERROR = "Shard parameter -shard must be <i>/<N> with 0 <= i < N.";
+
+    private static final String MEMORY_ERROR = "Memory parameter -mem must be greater than 0 and requires -stream.";
+
+    private static final String ANSWERS_ERROR = "Answer parameter -answers has too few distinct problems for -n in this range: ";
+
+    private static final String BLOOM_ERROR = "Bloom filter parameter -bloom must be between 0 and 1 (exclusive).";
+
+    private static final String USAGE =
+            "Usage: Myapp.exe -n <number> -r <range> -e <exercisefile>.txt -a <answerfile>.txt [-j <threads>] [-stream [-mem <MB>]] [-verify] [-bloom <fprate>] [-exhaustive] [-answers <a1,a2,...>] [-seed <seed>] [-shard <i>/<N>] [-backward]\n"
+            + "   or: Myapp.exe -e <exercisefile>.txt -a <answerfile>.txt -g <gradefile>.txt [-j <threads>] [-ranges] [-byindex]\n"
+            + "   or: Myapp.exe -merge <e1.txt,a1.txt,e2.txt,a2.txt,...> -e <exercisefile>.txt -a <answerfile>.txt [-sort] [-mem <MB>]\n"
+            + "   or: Myapp.exe -e <exercisefile>.txt -batch <answerdir|a1.txt,a2.txt,...> -g <gradedir> [-j <threads>] [-ranges] [-byindex]";
+
     public static void main(String[] args) throws FileNotFoundException {
-        if (!(args.length == 6 || args.length == 8)) {
-            System.out.println("Usage: Myapp.exe -n <number> -r <range> -e <exercisefile>.txt -a <answerfile>.txt");
-            System.out.println("   or: Myapp.exe -e <exercisefile>.txt -a <answerfile>.txt -g <gradefile>.txt");
+        Map<String, String> options = parseOptions(args);
+        if (options == null) {
+            System.out.println(USAGE);
             return;
         }
 
+        // 合并多组题目和答案文件，去重后重新编号
+        if (options.containsKey("-merge") && options.containsKey("-e") && options.containsKey("-a")) {
+            long megabytes = options.containsKey("-mem") ? Long.parseLong(options.get("-mem")) : 0;
+            List<String> inputs = Arrays.asList(options.get("-merge").split(","));
+            long read;
+            long written;
+            try {
+                if (options.containsKey("-sort")) {
+                    // -sort：外部排序后多路归并，内存占用与题目总数无关，输出按指纹排序
+                    SortingProblemMerger merger = new SortingProblemMerger(megabytes << 20);
+                    merger.merge(inputs, options.get("-e"), options.get("-a"));
+                    System.out.println("共生成 " + merger.getRuns() + " 个有序段，归并 " + merger.getPasses() + " 趟");
+                    read = merger.getRead();
+                    written = merger.getWritten();
+                } else {
+                    ProblemMerger merger = new ProblemMerger(megabytes << 20);
+                    merger.merge(inputs, options.get("-e"), options.get("-a"));
+                    read = merger.getRead();
+                    written = merger.getWritten();
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("合并题目文件时出错: " + e.getMessage());
+                return;
+            }
+            System.out.println("合并题目成功！共读取 " + read + " 道，去重后 " + written + " 道"
+                    + "\n题目已写入" + options.get("-e") + "\n答案已写入" + options.get("-a"));
+        }
         // 处理生成题目和答案的逻辑
-        if ("-n".equals(args[0]) && "-r".equals(args[2])) {
-            int n = Integer.parseInt(args[1]);
-            int r = Integer.parseInt(args[3]);
+        else if (options.containsKey("-n") && options.containsKey("-r")
+                && options.containsKey("-e") && options.containsKey("-a")) {
+            int n = Integer.parseInt(options.get("-n"));
+            int r = Integer.parseInt(options.get("-r"));
+            int threads = threads(options);
 
             if (n <= 0) {
                 System.out.println("Number parameter -n is required and must be greater than 0.");
@@ -38,36 +106,248 @@ public class Main {
                 System.out.println("Range parameter -r is required and must be between 1 and 10 (not including 10).");
                 return;
             }
-            ExpressionGenerator generator = new ExpressionGenerator(r);
-            ExpressionNormalizer normalizer = new ExpressionNormalizer();
-            Map<String, Fraction> expressions = new HashMap<>();
-            while (expressions.size() < n) {
-                ExpressionResult result = generator.generateExpression();
-               // String normalizedExpression = result.getExpression();
-                String normalizedExpression = normalizer.normalizeExpression(result.getExpression());
-                if (expressions.containsKey(normalizedExpression)) {
-                    continue;
+            if (threads <= 0) {
+                System.out.println(THREADS_ERROR);
+                return;
+            }
+            int[] shard = shard(options);
+            if (shard == null) {
+                System.out.println(SHARD_ERROR);
+                return;
+            }
+            if (!options.containsKey("-answers")
+                    && (options.containsKey("-exhaustive") || r <= ExpressionEnumerator.AUTO_RANGE)) {
+                // 范围较小或指定 -exhaustive 时穷举全部题目，再不放回地随机抽取
+                List<String> ignored = new ArrayList<>();
+                for (String option : ENUMERATE_IGNORED) {
+                    if (options.containsKey(option)) {
+                        ignored.add(option);
+                    }
+                }
+                if (!ignored.isEmpty()) {
+                    if (options.containsKey("-exhaustive")) {
+                        // 显式指定 -exhaustive 时不接受不起作用的参数
+                        System.out.println(String.format(ENUMERATE_ERROR, String.join(", ", ignored)));
+                        return;
+                    }
+                    System.out.println("Range " + r + " is enumerated exhaustively; ignoring " + String.join(", ", ignored) + ".");
                 }
-                expressions.put(normalizedExpression, result.getResult());
+                enumerate(n, r, shard, options);
+                return;
+            }
+            if (options.containsKey("-seed") && options.containsKey("-j")) {
+                // 指定种子时只在当前线程生成，不接受不起作用的 -j
+                System.out.println(SEED_ERROR);
+                return;
             }
-            // 将题目和答案写入文件
-            FileHandler.writeExpressions(expressions, args[5]);
-            FileHandler.writeAnswers(expressions, args[7]);
-            System.out.println("生成题目和答案成功！\n题目已写入" + args[5] + "\n答案已写入" + args[7]);
+            // -verify：工作线程在接受每道题前重新计算一遍答案
+            ParallelGenerator generator = new ParallelGenerator(r, threads, options.containsKey("-verify"));
+            // -seed：结果可以重现，在当前线程生成；-shard：只生成第 i 片，各片互不重复
+            if (options.containsKey("-seed")) {
+                generator.setSeed(Long.parseLong(options.get("-seed")));
+            }
+            generator.setShard(shard[0], shard[1]);
+            // -backward：按答案比例倒推生成，分片时不需要丢弃其他分片的题目，但题目形式比随机生成少
+            generator.setBackwardOnly(options.containsKey("-backward"));
+            if (options.containsKey("-bloom")) {
+                // -bloom：精确去重前加一层布隆过滤器，参数为目标误判率
+                double rate = Double.parseDouble(options.get("-bloom"));
+                if (!(rate > 0 && rate < 1)) {
+                    System.out.println(BLOOM_ERROR);
+                    return;
+                }
+                generator.enableBloomFilter(rate);
+            }
+            if (options.containsKey("-answers")) {
+                // -answers：只生成答案为其中之一的题目，题目平均分给各个答案
+                List<Fraction> answers = new ArrayList<>();
+                try {
+                    for (String answer : options.get("-answers").split(",")) {
+                        answers.add(new Fraction(answer.trim()));
+                    }
+                    generator.setAnswers(answers);
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Answer parameter -answers is invalid: " + e.getMessage());
+                    return;
+                }
+            }
+            if (options.containsKey("-mem")) {
+                // -mem：去重在内存中只保留这么多 MB 的指纹，其余写入临时文件
+                long megabytes = Long.parseLong(options.get("-mem"));
+                if (megabytes <= 0 || !options.containsKey("-stream")) {
+                    System.out.println(MEMORY_ERROR);
+                    return;
+                }
+                generator.setMemoryBudget(megabytes << 20);
+            }
+            try {
+                if (options.containsKey("-stream")) {
+                    // 流式模式：通过去重的题目立即写入文件，内存中只保留去重用的标准化形式
+                    try (ProblemWriter writer = new ProblemWriter(options.get("-e"), options.get("-a"))) {
+                        generator.generate(n, writer::write);
+                    } catch (IOException e) {
+                        System.err.println("写入题目文件时出错: " + e.getMessage());
+                        return;
+                    }
+                } else {
+                    // 每个线程独立生成，按标准化形式并发去重
+                    Map<String, Fraction> expressions = generator.generate(n);
+                    // 一次遍历将题目和答案写入文件
+                    FileHandler.writeProblems(expressions, options.get("-e"), options.get("-a"));
+                }
+            } catch (IllegalArgumentException e) {
+                if (!options.containsKey("-answers")) {
+                    throw e;
+                }
+                // 指定的答案都不属于当前分片
+                System.out.println("Answer parameter -answers is invalid: " + e.getMessage());
+                return;
+            } catch (IllegalStateException e) {
+                if (!options.containsKey("-answers")) {
+                    throw e;
+                }
+                // 某个答案不重复的题目不够分配，多线程时原因包装在 cause 中
+                System.out.println(ANSWERS_ERROR + (e.getCause() != null ? e.getCause().getMessage() : e.getMessage()));
+                return;
+            }
+            printStatistics(generator);
+            System.out.println("生成题目和答案成功！\n题目已写入" + options.get("-e") + "\n答案已写入" + options.get("-a"));
+        }
+        // 批量批改：同一份题目对比多份答案
+        else if (options.containsKey("-e") && options.containsKey("-batch") && options.containsKey("-g")) {
+            int threads = threads(options);
+            if (threads <= 0) {
+                System.out.println(THREADS_ERROR);
+                return;
+            }
+            List<String> answerFiles = BatchGrader.listAnswerFiles(options.get("-batch"));
+            try {
+                // 标准答案只计算一次，各份答案并行批改
+                new BatchGrader(options.get("-e")).gradeAll(answerFiles, options.get("-g"), threads,
+                        options.containsKey("-ranges"), options.containsKey("-byindex"));
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("对比答案文件时出错: " + e.getMessage());
+                return;
+            }
+            System.out.println("批量对比答案完成！共 " + answerFiles.size() + " 份答案\n检查结果已写入" + options.get("-g"));
         }
         // 处理对比答案的逻辑
-        else if ("-e".equals(args[0]) && "-a".equals(args[2])) {
-            String exerciseFile = args[1];
-            String answerFile = args[3];
+        else if (options.containsKey("-e") && options.containsKey("-a") && options.containsKey("-g")) {
+            String exerciseFile = options.get("-e");
+            String answerFile = options.get("-a");
+            int threads = threads(options);
+            if (threads <= 0) {
+                System.out.println(THREADS_ERROR);
+                return;
+            }
 
-            // 调用 gradeAnswers 函数对比答案
-            FileHandler.gradeAnswers(exerciseFile, answerFile, args[5]);
+            // 调用 gradeAnswers 函数对比答案，文件按行切分后多线程批改
+            // -ranges：连续的题号合并为区间，如 "Correct: 10000 (1-10000)"
+            boolean ranges = options.containsKey("-ranges");
+            if (options.containsKey("-byindex")) {
+                // -byindex：按"题目N"/"答案N"的题号对应，答案可以乱序或缺失
+                FileHandler.gradeAnswersByIndex(exerciseFile, answerFile, options.get("-g"), threads, ranges);
+            } else {
+                FileHandler.gradeAnswers(exerciseFile, answerFile, options.get("-g"), threads, ranges);
+            }
 
-            System.out.println("对比答案完成！\n检查结果已写入" + args[5]);
+            System.out.println("对比答案完成！\n检查结果已写入" + options.get("-g"));
         } else {
             System.out.println("无效的参数。");
-            System.out.println("Usage: Myapp.exe -n <number> -r <range> -e <exercisefile>.txt -a <answerfile>.txt");
-            System.out.println("   or: Myapp.exe -e <exercisefile>.txt -a <answerfile>.txt -g <gradefile>.txt");
+            System.out.println(USAGE);
+        }
+    }
+
+    /**
+     * 穷举范围内的全部题目并抽取 n 道，n 超过不重复的题目个数时直接报告最大值
+     */
+    private static void enumerate(int n, int r, int[] shard, Map<String, String> options) {
+        ExpressionEnumerator enumerator = new ExpressionEnumerator(r);
+        if ((long) n * shard[1] > enumerator.size()) {
+            System.out.println("Range " + r + " has only " + enumerator.size()
+                    + " distinct problems; -n times the shard count must not exceed it.");
+            return;
+        }
+        // 各分片用同一个种子洗牌，按洗牌后的下标分配题目
+        SplittableRandom random = options.containsKey("-seed")
+                ? new SplittableRandom(Long.parseLong(options.get("-seed"))) : new SplittableRandom();
+        if (options.containsKey("-stream")) {
+            try (ProblemWriter writer = new ProblemWriter(options.get("-e"), options.get("-a"))) {
+                enumerator.sample(n, random, shard[0], shard[1], writer::write);
+            } catch (IOException e) {
+                System.err.println("写入题目文件时出错: " + e.getMessage());
+                return;
+            }
+        } else {
+            Map<String, Fraction> expressions = new LinkedHashMap<>(n * 4 / 3 + 1);
+            try {
+                enumerator.sample(n, random, shard[0], shard[1], expressions::put);
+            } catch (IOException e) {
+                // 写入 Map 不会抛出 IOException
+                throw new IllegalStateException(e);
+            }
+            FileHandler.writeProblems(expressions, options.get("-e"), options.get("-a"));
+        }
+        System.out.println("生成题目和答案成功！\n题目已写入" + options.get("-e") + "\n答案已写入" + options.get("-a"));
+    }
+
+    /**
+     * 输出生成器的丢弃和重试次数，启用了布隆过滤器时还输出其填充率和误判次数。
+     * 统计信息写到标准错误，标准输出只有生成成功的提示
+     */
+    private static void printStatistics(ParallelGenerator generator) {
+        System.err.println(generator.statistics());
+        if (generator.getBloomFilter() != null) {
+            System.err.println(generator.getBloomFilter());
+        }
+    }
+
+    /**
+     * @return -shard 指定的 {分片下标, 分片数}，默认为 {0, 1}，格式错误时返回 null
+     */
+    private static int[] shard(Map<String, String> options) {
+        if (!options.containsKey("-shard")) {
+            return new int[]{0, 1};
+        }
+        String[] parts = options.get("-shard").split("/");
+        if (parts.length != 2) {
+            return null;
+        }
+        int index = Integer.parseInt(parts[0].trim());
+        int count = Integer.parseInt(parts[1].trim());
+        return count > 0 && index >= 0 && index < count ? new int[]{index, count} : null;
+    }
+
+    /**
+     * @return -j 指定的线程数，默认为 1
+     */
+    private static int threads(Map<String, String> options) {
+        return options.containsKey("-j") ? Integer.parseInt(options.get("-j")) : 1;
+    }
+
+    /**
+     * 解析"-参数名 参数值"形式的命令行参数，参数顺序不限；FLAGS 中的开关参数不带参数值
+     * @param args 命令行参数
+     * @return 参数名 -> 参数值（开关参数的值为空字符串），格式错误时返回 null
+     */
+    static Map<String, String> parseOptions(String[] args) {
+        if (args.length == 0) {
+            return null;
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (!name.startsWith("-") || options.containsKey(name)) {
+                return null;
+            }
+            if (FLAGS.contains(name)) {
+                options.put(name, "");
+            } else if (i + 1 < args.length) {
+                options.put(name, args[++i]);
+            } else {
+                return null;
+            }
         }
+        return options;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,77 @@
+package com.mathgenerator.generator;
+
+import com.mathgenerator.model.Fraction;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * @date: 2025/04/06
+ * @description: 按答案平均分配题目数量
+ * n 道题平均分给每个答案，前 n % 答案数 个答案各多一道。各工作线程轮流为还没有达到配额的答案生成题目，
+ * 通过去重后计入该答案的配额。某个答案连续 MAX_MISSES 次都生成重复的题目时，
+ * 认为它的不重复题目已经不够，抛出异常而不是一直循环。线程安全。
+ */
+final class AnswerQuota {
+    /**
+     * 同一个答案连续生成重复题目的次数上限
+     */
+    private static final int MAX_MISSES = 1 << 20;
+
+    private final Fraction[] answers;
+    private final int[] quotas;
+    private final AtomicIntegerArray accepted;
+    private final AtomicIntegerArray misses;
+
+    /**
+     * @param answers 答案
+     * @param n       题目总数
+     */
+    AnswerQuota(List<Fraction> answers, int n) {
+        this.answers = answers.toArray(new Fraction[0]);
+        this.quotas = new int[this.answers.length];
+        for (int i = 0; i < quotas.length; i++) {
+            quotas[i] = n / quotas.length + (i < n % quotas.length ? 1 : 0);
+        }
+        this.accepted = new AtomicIntegerArray(quotas.length);
+        this.misses = new AtomicIntegerArray(quotas.length);
+    }
+
+    /**
+     * @param from 从第几个答案开始找，各线程从不同位置开始可以减少争用
+     * @return 还没有达到配额的答案下标，全部达到时返回 -1
+     */
+    int next(int from) {
+        for (int i = 0; i < quotas.length; i++) {
+            int index = Math.floorMod(from + i, quotas.length);
+            if (accepted.get(index) < quotas[index]) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    Fraction answer(int index) {
+        return answers[index];
+    }
+
+    /**
+     * 一道答案为 answers[index] 的题目通过了去重
+     * @return 计入配额时返回 true，多个线程同时通过、配额已满时返回 false
+     */
+    boolean accept(int index) {
+        misses.set(index, 0);
+        return accepted.incrementAndGet(index) <= quotas[index];
+    }
+
+    /**
+     * 一道答案为 answers[index] 的题目与已有题目重复
+     * @throws IllegalStateException 连续重复次数过多
+     */
+    void duplicate(int index) {
+        if (misses.incrementAndGet(index) > MAX_MISSES) {
+            throw new IllegalStateException("Not enough distinct problems with answer " + answers[index]
+                    + ": " + Math.min(accepted.get(index), quotas[index]) + " of " + quotas[index]);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.mathgenerator.generator;
+
+import com.mathgenerator.model.Fingerprint;
+import com.mathgenerator.model.Fraction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * @date: 2025/04/07
+ * @description: 按答案划分题目空间的一个分片
+ * 标准化不改变题目的答案，答案不同的题目一定不重复，因此按答案分片：
+ * 答案文本的 128 位指纹除以分片数余 index 的答案属于第 index 片，与进程、线程和种子无关。
+ * 随机生成时用 contains 在标准化之前判断题目是否属于本片；倒推生成时每次按答案在全部题目中的比例
+ * （BackwardGenerator.answerWeights）随机选一个本片的答案，再由 BackwardGenerator 倒推出题目，不需要丢弃。
+ * 创建后只读，可以在线程间共享。
+ */
+final class AnswerShard {
+    private final Fraction[] answers;
+    private final double[] cumulative;  // 前 i + 1 个答案的比例之和
+
+    /**
+     * @param range 生成数字的范围上限，不能超过 OperationTable.MAX_RANGE
+     * @param index 分片下标，在 [0, count) 之间
+     * @param count 分片数
+     * @throws IllegalArgumentException 本片没有任何答案
+     */
+    AnswerShard(int range, int index, int count) {
+        List<Fraction> chosen = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        for (Map.Entry<Fraction, Double> entry : new BackwardGenerator(range, new SplittableRandom(0)).answerWeights().entrySet()) {
+            if (contains(entry.getKey(), index, count)) {
+                chosen.add(entry.getKey());
+                weights.add(entry.getValue());
+            }
+        }
+        if (chosen.isEmpty()) {
+            throw new IllegalArgumentException("No answer in range " + range + " falls in shard " + index + "/" + count);
+        }
+        this.answers = chosen.toArray(new Fraction[0]);
+        this.cumulative = new double[answers.length];
+        double sum = 0;
+        for (int i = 0; i < answers.length; i++) {
+            sum += weights.get(i);
+            cumulative[i] = sum;
+        }
+    }
+
+    /**
+     * @param answer 答案
+     * @param index  分片下标
+     * @param count  分片数
+     * @return 答案是否属于第 index 片
+     */
+    static boolean contains(Fraction answer, int index, int count) {
+        Fingerprint fingerprint = new Fingerprint().append(answer.toString());
+        return Long.remainderUnsigned(fingerprint.high(), count) == index;
+    }
+
+    /**
+     * @return 按比例随机选择的本片答案
+     */
+    Fraction next(SplittableRandom random) {
+        int i = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[cumulative.length - 1]);
+        // 没有找到时 binarySearch 返回 -(插入位置) - 1，插入位置即第一个大于该数的前缀和
+        return answers[Math.min(answers.length - 1, i < 0 ? -i - 1 : i + 1)];
+    }
+
+    /**
+     * @return 本片的答案个数
+     */
+    int size() {
+        return answers.length;
+    }
+}
@@ -0,0 +1,293 @@
+package com.mathgenerator.generator;
+
+import com.mathgenerator.generator.ExpressionGenerator.ExpressionResult;
+import com.mathgenerator.model.ExpressionNode;
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.model.Operand;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * @date: 2025/04/06
+ * @description: 从指定答案倒推生成题目
+ * 运算表记录了每个值与每个运算符、操作数组合后的结果，把它反过来就知道每个值可以由哪些
+ * （前一个值, 运算符, 操作数）得到。从答案出发，每一步随机选一个这样的组合，
+ * 直到前一个值就是某个操作数，得到的题目从左到右的每一步都满足 ExpressionGenerator 的生成规则。
+ * 运算表按从左到右的顺序计算，而题目按运算符优先级求值，所以只构造两者一致的题目：
+ * 乘除运算符之前不能有加减运算符，唯一的例外是第一个运算符为加减时给它加上括号。
+ * 每一步只从能倒推回操作数的组合中选择，不会走进死路，也不需要检查后丢弃。
+ * 非线程安全。
+ */
+public final class BackwardGenerator {
+    private static final int MAX_OPERATORS = ExpressionGenerator.MAX_OPERATORS;
+    private static final int SUBTRACT = 1;   // 运算符下标不超过它的是加减
+
+    private final SplittableRandom random;
+    private final OperandTable operandTable;
+    private final OperationTable operationTable;
+
+    // 值下标 -> 得到它的全部组合，每个组合编码为 前一个值下标 << 10 | 运算符下标 << 8 | 操作数下标
+    private final int[][] predecessors;
+    // [d][值下标]：d 个运算符后能否得到该值；d 个运算符中除第一个外都是乘除时能否得到该值
+    private final boolean[][] reachable;
+    private final boolean[][] reachableMultiplicative;
+
+    private final int[] candidates;
+    private final int[] operands = new int[MAX_OPERATORS + 1];
+    private final int[] operators = new int[MAX_OPERATORS];
+    private final int[] counts = new int[MAX_OPERATORS + 1];
+
+    /**
+     * @param range  生成数字的范围上限，不能超过 OperationTable.MAX_RANGE
+     * @param random 随机数生成器
+     */
+    public BackwardGenerator(int range, SplittableRandom random) {
+        this.random = random;
+        this.operandTable = OperandTable.forRange(range);
+        this.operationTable = OperationTable.forRange(range);
+        int valueCount = operationTable.size();
+        int operandCount = operandTable.size();
+
+        // 反向索引：先数出每个值的组合数，再填入
+        int[] sizes = new int[valueCount];
+        forEachTransition((value, op, o, result) -> sizes[result]++);
+        predecessors = new int[valueCount][];
+        for (int value = 0; value < valueCount; value++) {
+            predecessors[value] = new int[sizes[value]];
+        }
+        forEachTransition((value, op, o, result) -> predecessors[result][--sizes[result]] = value << 10 | op << 8 | o);
+
+        // 正向计算每一层能得到的值
+        reachable = new boolean[MAX_OPERATORS + 1][valueCount];
+        reachableMultiplicative = new boolean[MAX_OPERATORS + 1][valueCount];
+        for (int o = 0; o < operandCount; o++) {
+            int value = operationTable.valueOf(operandTable.get(o));
+            reachable[0][value] = true;
+            reachableMultiplicative[0][value] = true;
+        }
+        for (int d = 0; d < MAX_OPERATORS; d++) {
+            for (int value = 0; value < valueCount; value++) {
+                if (operationTable.reach(value) == 0) {
+                    continue;
+                }
+                for (int op = 0; op < ExpressionGenerator.OPERATORS.length; op++) {
+                    // 第一个运算符不限，之后只能是乘除
+                    boolean multiplicative = d == 0 || op > SUBTRACT;
+                    if (!reachable[d][value] && !(multiplicative && reachableMultiplicative[d][value])) {
+                        continue;
+                    }
+                    for (int o = 0; o < operandCount; o++) {
+                        int result = operationTable.apply(value, op, operandTable.get(o));
+                        if (result == OperationTable.REJECTED) {
+                            continue;
+                        }
+                        if (reachable[d][value]) {
+                            reachable[d + 1][result] = true;
+                        }
+                        if (multiplicative && reachableMultiplicative[d][value]) {
+                            reachableMultiplicative[d + 1][result] = true;
+                        }
+                    }
+                }
+            }
+        }
+        int longest = 0;
+        for (int[] list : predecessors) {
+            longest = Math.max(longest, list.length);
+        }
+        candidates = new int[longest];
+    }
+
+    /**
+     * 运算表中的一个组合：value op operand = result
+     */
+    private interface TransitionVisitor {
+        void visit(int value, int operatorIndex, int operand, int result);
+    }
+
+    private void forEachTransition(TransitionVisitor visitor) {
+        for (int value = 0; value < operationTable.size(); value++) {
+            if (operationTable.reach(value) == 0) {
+                continue;
+            }
+            for (int op = 0; op < ExpressionGenerator.OPERATORS.length; op++) {
+                for (int o = 0; o < operandTable.size(); o++) {
+                    int result = operationTable.apply(value, op, operandTable.get(o));
+                    if (result != OperationTable.REJECTED) {
+                        visitor.visit(value, op, o, result);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param target 答案
+     * @return 能否倒推出以 target 为答案的题目
+     */
+    public boolean canReach(Fraction target) {
+        int value = valueOf(target);
+        if (value < 0) {
+            return false;
+        }
+        for (int k = 1; k <= MAX_OPERATORS; k++) {
+            if (countCandidates(value, k - 1, false) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 生成一道答案为 target 的题目，运算符个数在可行的个数中随机选择
+     * @param target 答案
+     * @return 未标准化的题目
+     * @throws IllegalArgumentException 在当前范围内无法得到该答案
+     */
+    public ExpressionResult generateExpression(Fraction target) {
+        int answer = valueOf(target);
+        int value = answer;
+        int feasible = 0;
+        if (value >= 0) {
+            for (int k = 1; k <= MAX_OPERATORS; k++) {
+                if (countCandidates(value, k - 1, false) > 0) {
+                    counts[feasible++] = k;
+                }
+            }
+        }
+        if (feasible == 0) {
+            throw new IllegalArgumentException("No problem in range has answer " + target);
+        }
+        int operatorCount = counts[random.nextInt(feasible)];
+
+        // 从最后一个运算符倒推到第一个
+        boolean laterMultiplicative = false;
+        for (int j = operatorCount - 1; j >= 0; j--) {
+            int size = countCandidates(value, j, laterMultiplicative);
+            int chosen = candidates[random.nextInt(size)];
+            operators[j] = chosen >>> 8 & 3;
+            operands[j + 1] = chosen & 0xFF;
+            value = chosen >>> 10;
+            laterMultiplicative |= operators[j] > SUBTRACT;
+        }
+        operands[0] = chooseOperand(value);
+
+        List<Operand> numbers = new ArrayList<>(operatorCount + 1);
+        List<Character> symbols = new ArrayList<>(operatorCount);
+        for (int i = 0; i <= operatorCount; i++) {
+            numbers.add(operandTable.get(operands[i]));
+        }
+        for (int i = 0; i < operatorCount; i++) {
+            symbols.add(ExpressionGenerator.OPERATORS[operators[i]]);
+        }
+        // 第一个运算符为加减、之后有乘除时加括号，使按优先级求值与从左到右计算一致
+        int parenthesesPosition = operatorCount > 1 && operators[0] <= SUBTRACT && laterMultiplicative(operatorCount)
+                ? 0 : -1;
+        ExpressionNode root = ExpressionGenerator.buildTree(numbers, symbols, parenthesesPosition);
+        return new ExpressionResult(root, operationTable.value(answer));
+    }
+
+    private boolean laterMultiplicative(int operatorCount) {
+        for (int i = 1; i < operatorCount; i++) {
+            if (operators[i] > SUBTRACT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 每个答案在全部题目中所占的比例，用于按答案分片生成时近似正向生成的答案分布。
+     * 按可以倒推生成的运算链计数：运算符个数在 1 到 MAX_OPERATORS 之间均匀选择，
+     * 同一个运算符个数的各条运算链机会相同，答案的比例为各个运算符个数下得到它的运算链所占比例的平均值。
+     * @return 答案 -> 比例，按值的下标排序，只包含能倒推出题目的答案
+     */
+    public Map<Fraction, Double> answerWeights() {
+        int valueCount = operationTable.size();
+        // [d][值下标]：d 个运算符后得到该值的运算链数，按第一个之后的运算符是否已有加减分开计数
+        long[][] multiplicative = new long[MAX_OPERATORS + 1][valueCount];
+        long[][] additive = new long[MAX_OPERATORS + 1][valueCount];
+        for (int o = 0; o < operandTable.size(); o++) {
+            multiplicative[0][operationTable.valueOf(operandTable.get(o))]++;
+        }
+        for (int d = 0; d < MAX_OPERATORS; d++) {
+            long[] fromMultiplicative = multiplicative[d];
+            long[] fromAdditive = additive[d];
+            long[] toMultiplicative = multiplicative[d + 1];
+            long[] toAdditive = additive[d + 1];
+            boolean first = d == 0;
+            forEachTransition((value, op, o, result) -> {
+                if (first || op > SUBTRACT) {
+                    // 乘除之前只有第一个运算符可以是加减
+                    toMultiplicative[result] += fromMultiplicative[value];
+                } else {
+                    toAdditive[result] += fromMultiplicative[value] + fromAdditive[value];
+                }
+            });
+        }
+        double[] weights = new double[valueCount];
+        for (int k = 1; k <= MAX_OPERATORS; k++) {
+            long total = 0;
+            for (int value = 0; value < valueCount; value++) {
+                total += multiplicative[k][value] + additive[k][value];
+            }
+            for (int value = 0; value < valueCount && total > 0; value++) {
+                weights[value] += (double) (multiplicative[k][value] + additive[k][value]) / total / MAX_OPERATORS;
+            }
+        }
+        Map<Fraction, Double> answers = new LinkedHashMap<>();
+        for (int value = 0; value < valueCount; value++) {
+            if (weights[value] > 0) {
+                answers.put(operationTable.value(value), weights[value]);
+            }
+        }
+        return answers;
+    }
+
+    /**
+     * 把能得到 value、且作为第 j 个运算符（从 0 开始）仍能倒推回操作数的组合放入 candidates
+     * @param laterMultiplicative 第 j 个运算符之后是否已有乘除运算符
+     * @return 组合个数
+     */
+    private int countCandidates(int value, int j, boolean laterMultiplicative) {
+        int size = 0;
+        for (int candidate : predecessors[value]) {
+            int op = candidate >>> 8 & 3;
+            boolean multiplicative = laterMultiplicative || op > SUBTRACT;
+            // 乘除之前只有第一个运算符可以是加减
+            if (j > 0 && op <= SUBTRACT && laterMultiplicative) {
+                continue;
+            }
+            int previous = candidate >>> 10;
+            if (multiplicative ? reachableMultiplicative[j][previous] : reachable[j][previous]) {
+                candidates[size++] = candidate;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return 值为 value 的操作数中随机的一个
+     */
+    private int chooseOperand(int value) {
+        int size = 0;
+        for (int o = 0; o < operandTable.size(); o++) {
+            if (operationTable.valueOf(operandTable.get(o)) == value) {
+                candidates[size++] = o;
+            }
+        }
+        return candidates[random.nextInt(size)];
+    }
+
+    private int valueOf(Fraction target) {
+        if (target.isBig()) {
+            return -1;
+        }
+        return operationTable.indexOf(target.toPacked());
+    }
+}
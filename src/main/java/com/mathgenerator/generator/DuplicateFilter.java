@@ -0,0 +1,249 @@
+package com.mathgenerator.generator;
+
+import com.mathgenerator.model.ExpressionNode;
+import com.mathgenerator.model.Fingerprint;
+import com.mathgenerator.util.BloomFilter;
+import com.mathgenerator.util.LongObjectHashMap;
+import com.mathgenerator.util.LongPairHashSet;
+import com.mathgenerator.util.SpillingLongPairSet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @date: 2025/04/02
+ * @description: 按标准形式的指纹去重
+ * 只有通过去重的题目才输出为字符串，重复的题目不产生任何字符串。
+ * 指纹按高位分段，每段一把锁，多个线程同时去重时很少互相等待。
+ * 有两种实现：
+ * exact 以 64 位指纹为键、题目字符串为值，指纹相同时再比较字符串，结果与按字符串去重完全相同，
+ * 字符串本来就要保存在结果中，额外的开销只有每题一个 long 和一个引用；
+ * wide 只保存 128 位指纹，不保留任何字符串，每题约 16~32 字节，用于边生成边写文件，
+ * 不同题目指纹相同的概率可以忽略，即使发生也只会少接受一道题，不会输出重复的题目。
+ * spilling 与 wide 相同，但每段只在内存中保留有限个指纹，其余写入临时文件，题目数量不受堆大小限制。
+ * 每种实现前面都可以加一层布隆过滤器，布隆过滤器判定为新的题目跳过精确查找直接插入。
+ */
+abstract class DuplicateFilter implements Closeable {
+    /**
+     * 多线程时的分段数
+     */
+    private static final int STRIPES = 64;
+
+    /**
+     * 判断标准化后的题目是否第一次出现
+     * @param fingerprint 题目的指纹
+     * @param root 标准化后的表达式树
+     * @return 第一次出现时返回题目的字符串，重复时返回 null
+     */
+    abstract String add(Fingerprint fingerprint, ExpressionNode root);
+
+    /**
+     * 插入一道已知是第一次出现的题目，省去插入前的查找；
+     * 多个线程同时插入同一道题时仍可能已经存在，此时与 add 相同
+     * @param fingerprint 题目的指纹
+     * @param root 标准化后的表达式树
+     * @return 第一次出现时返回题目的字符串，重复时返回 null
+     */
+    String addNew(Fingerprint fingerprint, ExpressionNode root) {
+        return add(fingerprint, root);
+    }
+
+    static DuplicateFilter exact(int expectedSize, int threads) {
+        return new Exact(expectedSize, stripes(threads));
+    }
+
+    static DuplicateFilter wide(int expectedSize, int threads) {
+        return new Wide(expectedSize, stripes(threads));
+    }
+
+    /**
+     * @param memoryBytes 全部分段在内存中保留指纹可以使用的字节数
+     * @param threads     线程数
+     * @throws IOException 无法创建临时目录
+     */
+    static DuplicateFilter spilling(long memoryBytes, int threads) throws IOException {
+        return new Spilling(memoryBytes, stripes(threads));
+    }
+
+    /**
+     * 释放去重使用的临时文件
+     */
+    @Override
+    public void close() throws IOException {
+    }
+
+    /**
+     * 在 filter 前加一层布隆过滤器
+     * @param filter 精确去重
+     * @param bloom  按 128 位指纹判断题目是否一定是第一次出现
+     */
+    static DuplicateFilter bloom(DuplicateFilter filter, BloomFilter bloom) {
+        return new Bloomed(filter, bloom);
+    }
+
+    private static int stripes(int threads) {
+        return threads == 1 ? 1 : STRIPES;
+    }
+
+    /**
+     * @return 指纹所在的分段，取高位，与哈希表用作槽位的低位无关
+     */
+    private static int stripe(long key, int stripes) {
+        return (int) (key >>> 58) & (stripes - 1);
+    }
+
+    private static final class Exact extends DuplicateFilter {
+        private final LongObjectHashMap<String>[] stripes;
+        // 64 位指纹相同但字符串不同的题目，实际中几乎总是为空
+        private final Set<String> collisions = ConcurrentHashMap.newKeySet();
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Exact(int expectedSize, int stripeCount) {
+            stripes = new LongObjectHashMap[stripeCount];
+            for (int i = 0; i < stripeCount; i++) {
+                stripes[i] = new LongObjectHashMap<>(expectedSize / stripeCount);
+            }
+        }
+
+        @Override
+        String add(Fingerprint fingerprint, ExpressionNode root) {
+            long key = fingerprint.low();
+            LongObjectHashMap<String> stripe = stripes[stripe(key, stripes.length)];
+            String existing;
+            synchronized (stripe) {
+                existing = stripe.get(key);
+                if (existing == null) {
+                    String expression = root.toString();
+                    stripe.putIfAbsent(key, expression);
+                    return expression;
+                }
+            }
+            // 指纹相同，比较字符串区分重复和冲突
+            String expression = root.toString();
+            if (expression.equals(existing)) {
+                return null;
+            }
+            return collisions.add(expression) ? expression : null;
+        }
+
+        @Override
+        String addNew(Fingerprint fingerprint, ExpressionNode root) {
+            long key = fingerprint.low();
+            LongObjectHashMap<String> stripe = stripes[stripe(key, stripes.length)];
+            String expression = root.toString();
+            String existing;
+            synchronized (stripe) {
+                existing = stripe.putIfAbsent(key, expression);
+            }
+            if (existing == null) {
+                return expression;
+            }
+            // 64 位指纹冲突，或另一个线程刚插入了同一道题
+            if (expression.equals(existing)) {
+                return null;
+            }
+            return collisions.add(expression) ? expression : null;
+        }
+    }
+
+    private static final class Wide extends DuplicateFilter {
+        private final LongPairHashSet[] stripes;
+
+        Wide(int expectedSize, int stripeCount) {
+            stripes = new LongPairHashSet[stripeCount];
+            for (int i = 0; i < stripeCount; i++) {
+                stripes[i] = new LongPairHashSet(expectedSize / stripeCount);
+            }
+        }
+
+        @Override
+        String add(Fingerprint fingerprint, ExpressionNode root) {
+            long high = fingerprint.high();
+            long low = fingerprint.low();
+            LongPairHashSet stripe = stripes[stripe(high, stripes.length)];
+            synchronized (stripe) {
+                if (!stripe.add(high, low)) {
+                    return null;
+                }
+            }
+            return root.toString();
+        }
+    }
+
+    private static final class Spilling extends DuplicateFilter {
+        private final SpillingLongPairSet[] stripes;
+
+        Spilling(long memoryBytes, int stripeCount) throws IOException {
+            stripes = new SpillingLongPairSet[stripeCount];
+            try {
+                for (int i = 0; i < stripeCount; i++) {
+                    stripes[i] = new SpillingLongPairSet(memoryBytes / stripeCount, null);
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        /**
+         * 布隆过滤器判定为新的题目也查找全部段：另一个线程可能在布隆过滤器之后插入了同一道题，
+         * 并且已经随热层写入段中，只查热层会再次接受它，因此不覆盖 addNew
+         */
+        @Override
+        String add(Fingerprint fingerprint, ExpressionNode root) {
+            long high = fingerprint.high();
+            long low = fingerprint.low();
+            SpillingLongPairSet stripe = stripes[stripe(high, stripes.length)];
+            synchronized (stripe) {
+                try {
+                    if (!stripe.add(high, low)) {
+                        return null;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to spill fingerprints", e);
+                }
+            }
+            return root.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (SpillingLongPairSet stripe : stripes) {
+                if (stripe != null) {
+                    stripe.close();
+                }
+            }
+        }
+    }
+
+    private static final class Bloomed extends DuplicateFilter {
+        private final DuplicateFilter filter;
+        private final BloomFilter bloom;
+
+        Bloomed(DuplicateFilter filter, BloomFilter bloom) {
+            this.filter = filter;
+            this.bloom = bloom;
+        }
+
+        @Override
+        String add(Fingerprint fingerprint, ExpressionNode root) {
+            if (bloom.put(fingerprint.high(), fingerprint.low())) {
+                return filter.addNew(fingerprint, root);
+            }
+            // 可能重复，精确查找确认
+            String expression = filter.add(fingerprint, root);
+            if (expression != null) {
+                bloom.recordFalsePositive();
+            }
+            return expression;
+        }
+
+        @Override
+        public void close() throws IOException {
+            filter.close();
+        }
+    }
+}
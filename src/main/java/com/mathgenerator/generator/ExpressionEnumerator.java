@@ -0,0 +1,240 @@
+package com.mathgenerator.generator;
+
+import com.mathgenerator.generator.ExpressionGenerator.ExpressionResult;
+import com.mathgenerator.generator.ParallelGenerator.ProblemConsumer;
+import com.mathgenerator.model.ExpressionNode;
+import com.mathgenerator.model.Fingerprint;
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.model.Operand;
+import com.mathgenerator.service.ExpressionNormalizer;
+import com.mathgenerator.util.LongPairHashSet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * @date: 2025/04/05
+ * @description: 穷举全部题目
+ * 操作数只来自 OperandTable，运算符不超过 MAX_OPERATORS 个，所以题目空间是有限的。
+ * 按 ExpressionGenerator 的生成规则穷举：操作数和运算符从左到右每一步都要通过运算表的检查，
+ * 同一个运算符不连续出现三次，括号只加在一个括号内的运算满足生成规则的加减运算符两侧，最终结果要满足 isValidResult，运算出错（如除以 0）的题目跳过。
+ * 每道题标准化后按 128 位指纹去重，每个标准形式只保留第一次遇到的题目，编码为一个 long。
+ * 这样就知道了不重复题目的准确个数，n 超过它时立即报错；
+ * 否则按随机下标不放回地抽取 n 道，每次抽取都得到新题目，不会像随机生成那样在接近饱和时反复生成重复的题目。
+ * 非线程安全。
+ */
+public final class ExpressionEnumerator {
+    /**
+     * 不超过该范围时 Main 默认穷举，穷举不到一秒；范围为 9 时约有一千一百万道题，穷举需要十几秒
+     */
+    public static final int AUTO_RANGE = 4;
+
+    private static final int MAX_OPERATORS = ExpressionGenerator.MAX_OPERATORS;
+
+    private final int range;
+    private final OperandTable operandTable;
+    private final OperationTable operationTable;
+    private final ExpressionNormalizer normalizer = new ExpressionNormalizer();
+    private final Fingerprint fingerprint = new Fingerprint();
+    private final LongPairHashSet seen = new LongPairHashSet(1024);
+
+    // 穷举过程中当前的操作数下标和运算符下标
+    private final int[] operands = new int[MAX_OPERATORS + 1];
+    private final int[] operators = new int[MAX_OPERATORS];
+
+    private long[] problems = new long[1024];   // 每个标准形式的一道题目，编码见 encode
+    private int size;
+    private long candidates;    // 检查过的题目数，含重复和不满足规则的
+
+    /**
+     * 穷举指定范围内的全部题目
+     * @param range 生成数字的范围上限，不能超过 OperationTable.MAX_RANGE
+     */
+    public ExpressionEnumerator(int range) {
+        this.range = range;
+        this.operandTable = OperandTable.forRange(range);
+        this.operationTable = OperationTable.forRange(range);
+        for (int o = 0; o < operandTable.size(); o++) {
+            operands[0] = o;
+            walk(operationTable.valueOf(operandTable.get(o)), 0);
+        }
+        problems = Arrays.copyOf(problems, size);
+    }
+
+    /**
+     * 在已有 depth 个运算符的序列后接上一个运算符和操作数
+     * @param value 当前从左到右运算的结果在运算表中的下标
+     * @param depth 已有的运算符个数
+     */
+    private void walk(int value, int depth) {
+        if (depth > 0) {
+            emit(depth);
+        }
+        if (depth == MAX_OPERATORS) {
+            return;
+        }
+        for (int op = 0; op < ExpressionGenerator.OPERATORS.length; op++) {
+            // 与随机生成相同，同一个运算符不能连续出现三次
+            if (depth >= 2 && operators[depth - 1] == op && operators[depth - 2] == op) {
+                continue;
+            }
+            for (int o = 0; o < operandTable.size(); o++) {
+                int next = operationTable.apply(value, op, operandTable.get(o));
+                if (next != OperationTable.REJECTED) {
+                    operators[depth] = op;
+                    operands[depth + 1] = o;
+                    walk(next, depth + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * 检查当前序列不加括号以及在每个加减运算符两侧加括号得到的题目，
+     * 与 ExpressionGenerator.chooseParentheses 相同，括号内的运算也要满足生成规则
+     * @param count 运算符个数
+     */
+    private void emit(int count) {
+        add(count, -1);
+        if (count > 1) {
+            for (int i = 0; i < count; i++) {
+                if (operators[i] <= 1 && ExpressionGenerator.combine(operandTable.get(operands[i]).getPacked(),
+                        ExpressionGenerator.OPERATORS[operators[i]], operandTable.get(operands[i + 1]).getPacked(), range)
+                        != ExpressionGenerator.REJECTED) {
+                    add(count, i);
+                }
+            }
+        }
+    }
+
+    private void add(int count, int parenthesesPosition) {
+        candidates++;
+        ExpressionNode root = build(count, operands, operators, parenthesesPosition);
+        Fraction result;
+        try {
+            result = root.getValue();
+        } catch (ArithmeticException | IllegalArgumentException e) {
+            // 除以 0，随机生成时同样会丢弃
+            return;
+        }
+        if (result.isBig() || !ExpressionGenerator.isValidResult(result.getNumerator(), result.getDenominator(), range)) {
+            return;
+        }
+        normalizer.fingerprint(root, fingerprint);
+        if (seen.add(fingerprint.high(), fingerprint.low())) {
+            if (size == problems.length) {
+                problems = Arrays.copyOf(problems, size * 2);
+            }
+            problems[size++] = encode(count, parenthesesPosition);
+        }
+    }
+
+    /**
+     * 编码：第 0~1 位为运算符个数，第 2~3 位为括号位置 + 1，
+     * 从第 4 位起每 2 位一个运算符下标，从第 10 位起每 8 位一个操作数下标
+     */
+    private long encode(int count, int parenthesesPosition) {
+        long code = count | (long) (parenthesesPosition + 1) << 2;
+        for (int i = 0; i < count; i++) {
+            code |= (long) operators[i] << (4 + i * 2);
+        }
+        for (int i = 0; i <= count; i++) {
+            code |= (long) operands[i] << (10 + i * 8);
+        }
+        return code;
+    }
+
+    private ExpressionNode decode(long code) {
+        int count = (int) (code & 3);
+        int[] codeOperands = new int[count + 1];
+        int[] codeOperators = new int[count];
+        for (int i = 0; i < count; i++) {
+            codeOperators[i] = (int) (code >>> (4 + i * 2)) & 3;
+        }
+        for (int i = 0; i <= count; i++) {
+            codeOperands[i] = (int) (code >>> (10 + i * 8)) & 0xFF;
+        }
+        return build(count, codeOperands, codeOperators, (int) (code >>> 2 & 3) - 1);
+    }
+
+    private ExpressionNode build(int count, int[] operandIndexes, int[] operatorIndexes, int parenthesesPosition) {
+        List<Operand> numbers = new ArrayList<>(count + 1);
+        List<Character> symbols = new ArrayList<>(count);
+        for (int i = 0; i <= count; i++) {
+            numbers.add(operandTable.get(operandIndexes[i]));
+        }
+        for (int i = 0; i < count; i++) {
+            symbols.add(ExpressionGenerator.OPERATORS[operatorIndexes[i]]);
+        }
+        return ExpressionGenerator.buildTree(numbers, symbols, parenthesesPosition);
+    }
+
+    /**
+     * @return 不重复的题目个数，即最多能生成的题目数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 穷举时检查过的题目数，含重复和不满足规则的
+     */
+    public long getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * @param index 题目下标，在 [0, size) 之间
+     * @return 标准化后的题目
+     */
+    public ExpressionResult get(int index) {
+        ExpressionNode root = decode(problems[index]);
+        return new ExpressionResult(normalizer.normalize(root), root.getValue());
+    }
+
+    /**
+     * 不放回地随机抽取 n 道不重复的题目
+     * @param n        题目数量
+     * @param random   随机数生成器
+     * @param consumer 题目的处理方，恰好被调用 n 次
+     * @throws IllegalArgumentException n 超过不重复的题目个数
+     * @throws IOException consumer 处理失败
+     */
+    public void sample(int n, SplittableRandom random, ProblemConsumer consumer) throws IOException {
+        sample(n, random, 0, 1, consumer);
+    }
+
+    /**
+     * 分片抽取：全部分片按同一个随机数洗牌，第 shard 片取洗牌后下标除以 shards 余 shard 的题目，
+     * 各分片使用种子相同的随机数时得到的题目互不重复
+     * @param n        本片的题目数量
+     * @param random   随机数生成器，各分片应使用种子相同的随机数
+     * @param shard    分片下标，在 [0, shards) 之间
+     * @param shards   分片数
+     * @param consumer 题目的处理方，恰好被调用 n 次
+     * @throws IllegalArgumentException n * shards 超过不重复的题目个数
+     * @throws IOException consumer 处理失败
+     */
+    public void sample(int n, SplittableRandom random, int shard, int shards, ProblemConsumer consumer)
+            throws IOException {
+        if ((long) n * shards > size) {
+            throw new IllegalArgumentException("Only " + size + " distinct problems exist for range " + range
+                    + ": " + n + " x " + shards);
+        }
+        // 部分 Fisher-Yates 洗牌，前 i 个位置是已抽取的题目
+        int last = shard + (n - 1) * shards;
+        for (int i = 0; i <= last; i++) {
+            int j = i + random.nextInt(size - i);
+            long code = problems[j];
+            problems[j] = problems[i];
+            problems[i] = code;
+            if (i % shards == shard) {
+                ExpressionResult problem = get(i);
+                consumer.accept(problem.getExpression(), problem.getResult());
+            }
+        }
+    }
+}
@@ -1,28 +1,97 @@
 package com.mathgenerator.generator;
 
+import com.mathgenerator.model.ExpressionNode;
 import com.mathgenerator.model.Fraction;
-import com.mathgenerator.service.ExpressionEvaluator;
-import com.mathgenerator.service.ExpressionNormalizer;
+import com.mathgenerator.model.FractionMath;
+import com.mathgenerator.model.NumberNode;
+import com.mathgenerator.model.Operand;
+import com.mathgenerator.model.OperatorNode;
 
-import java.util.Random;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.SplittableRandom;
 
 /**
  * 表达式生成器类
  * 用于生成四则运算表达式
  */
 public class ExpressionGenerator {
-    private final Random random;  // 随机数生成器
+    /**
+     * 每道题目最多的运算符个数
+     */
+    public static final int MAX_OPERATORS = 3;
+    /**
+     * 运算符，下标与 OperationTable 中的运算符下标一致
+     */
+    static final char[] OPERATORS = {'+', '-', '×', '÷'};
+    /**
+     * combine 的返回值，表示该组合不满足生成规则（分母为 0 的打包值不会是合法分数）
+     */
+    static final long REJECTED = 0L;
+
+    private final SplittableRandom random;  // 随机数生成器，每个生成器独占一个，不在线程间共享
     private final int range;      // 数值范围上限
+    private final OperandTable operandTable;  // 当前范围内的全部操作数
+    private final OperationTable operationTable;  // 预先计算的运算表，范围过大时为 null
+    // 第一个操作数的可行候选：[k] 为之后还能接 k 个运算符的整数 / 分数候选位置，范围过大时为 null
+    private final int[][] firstIntegers;
+    private final int[][] firstFractions;
+    // 按原生成概率（5/6 整数，1/6 分数）折算的单个整数、分数候选的权重
+    private final int integerWeight;
+    private final int fractionWeight;
+    private final int[] operatorWeights = new int[OPERATORS.length];
+
+    private long candidates;    // 生成的表达式数
+    private long rejected;      // 最终结果不满足 isValidResult 或无法计算而丢弃的表达式数
+    private long retries;       // 接不上剩余运算符、减少运算符个数重新生成的次数
 
     /**
      * 构造函数
      * @param range 生成数字的范围上限
      */
     public ExpressionGenerator(int range) {
-        this.random = new Random();
+        this(range, new SplittableRandom());
+    }
+
+    /**
+     * 构造函数
+     * @param range 生成数字的范围上限
+     * @param random 随机数生成器，多线程生成时由同一个 SplittableRandom 拆分得到
+     */
+    public ExpressionGenerator(int range, SplittableRandom random) {
+        this.random = random;
         this.range = range;
+        this.operandTable = OperandTable.forRange(range);
+        this.operationTable = range <= OperationTable.MAX_RANGE ? OperationTable.forRange(range) : null;
+        this.integerWeight = operandTable.fractionCount() == 0 ? 1 : 5 * operandTable.fractionCount();
+        this.fractionWeight = operandTable.integerCount();
+        if (operationTable != null) {
+            firstIntegers = new int[MAX_OPERATORS + 1][];
+            firstFractions = new int[MAX_OPERATORS + 1][];
+            for (int k = 0; k <= MAX_OPERATORS; k++) {
+                firstIntegers[k] = firstChoices(operandTable.integerCount(), false, k);
+                firstFractions[k] = firstChoices(operandTable.fractionCount(), true, k);
+            }
+        } else {
+            firstIntegers = null;
+            firstFractions = null;
+        }
+    }
+
+    /**
+     * @return 值之后还能接至少 minReach 个运算符的候选位置
+     */
+    private int[] firstChoices(int positions, boolean fraction, int minReach) {
+        int[] chosen = new int[positions];
+        int size = 0;
+        for (int p = 0; p < positions; p++) {
+            Operand operand = fraction ? operandTable.fractionAt(p) : operandTable.integerAt(p);
+            if (operationTable.reach(operationTable.valueOf(operand)) >= minReach) {
+                chosen[size++] = p;
+            }
+        }
+        return Arrays.copyOf(chosen, size);
     }
 
     /**
@@ -30,136 +99,224 @@ public class ExpressionGenerator {
      * @return 包含表达式和结果的ExpressionResult对象
      */
     public ExpressionResult generateExpression() {
-        String expression;
+        ExpressionNode expression;
         Fraction result;
         
         do {
             // 生成1-3个运算符
-            int operatorCount = random.nextInt(3) + 1;  // 这样会生成1,2,3
+            int operatorCount = random.nextInt(MAX_OPERATORS) + 1;  // 这样会生成1,2,3
             expression = generateSimpleExpression(operatorCount);
+            candidates++;
             try {
-                result = ExpressionEvaluator.evaluate(expression);
+                // 直接使用树上的值，不再把表达式转为字符串后重新解析
+                result = expression.getValue();
                 // 确保结果是有效的（不是负数且是真分数）
                 if (isValidResult(result)) {
                     break;
                 }
-            } catch (Exception e) {
-                System.out.println("生成的表达式无效：" + expression);
+            } catch (ArithmeticException | IllegalArgumentException e) {
+                // 除数为 0 等无法计算的表达式同样计入 rejected
             }
+            rejected++;
         } while (true);
 
-        // 新增检查，确保最终结果不为负数
-        if (result.getNumerator() < 0||result.getDenominator() < 0) {
-            return generateExpression(); // 重新生成表达式
-        }
-
-        // 添加计算过程的注释
-        StringBuilder process = new StringBuilder();
-        process.append("// ").append(expression).append("\n");
-        process.append("// = ").append(result).append("\n");
-
+        // 只保存树，题目通过去重后才转换为字符串
         return new ExpressionResult(expression, result);
     }
 
     /**
      * 生成简单的线性表达式
      * @param operatorCount 运算符的数量
-     * @return 生成的表达式字符串
+     * @return 生成的表达式树
      */
-    private String generateSimpleExpression(int operatorCount) {
+    private ExpressionNode generateSimpleExpression(int operatorCount) {
         // 首先生成一个基本的四则运算表达式
-        String expression = generateNormalExpression(operatorCount);
+        List<Operand> numbers = new ArrayList<>(operatorCount + 1);
+        List<Character> operators = new ArrayList<>(operatorCount);
+        while (!generateNormalExpression(operatorCount, numbers, operators)) {
+            retries++;
+            // 如果多次尝试都失败，减少运算符数量重新生成
+            operatorCount = Math.max(1, operatorCount - 1);
+            numbers.clear();
+            operators.clear();
+        }
         
         // 只有当运算符数量大于1（确保有足够的操作数）且随机概率为50%时才添加括号
-        if (operatorCount > 1 && random.nextBoolean()) {
-            expression = addParentheses(expression);
+        int parenthesesPosition = -1;
+        if (operators.size() > 1 && random.nextBoolean()) {
+            parenthesesPosition = chooseParentheses(numbers, operators);
         }
         
-        return expression;
+        return buildTree(numbers, operators, parenthesesPosition);
     }
 
     /**
-     * 在表达式中添加括号
-     * 只在加减法运算中添加括号，确保括号内至少包含一个加减运算符
-     * @param expression 原始表达式
-     * @return 添加括号后的表达式
+     * 选择添加括号的位置
+     * 只在加减法运算中添加括号，确保括号内至少包含一个加减运算符。
+     * 运算表只检查从左到右的计算，加括号后运算顺序改变，因此只在括号内的运算满足生成规则、
+     * 并且加括号后整个表达式的结果有效的位置中选择（例如不会出现除以 (4/8 - 4/8) 或 9 - (6 + 8)）
+     * @param numbers 操作数序列
+     * @param operators 运算符序列
+     * @return 被括号包围的运算符下标，没有可行的位置时返回 -1
      */
-    private String addParentheses(String expression) {
-        // 按空格分割表达式，得到数字和运算符
-        String[] parts = expression.split(" ");
-        
-        // 找到所有加减法运算符的位置
-        List<Integer> addSubOperatorPositions = new ArrayList<>();
-        for (int i = 0; i < parts.length; i++) {
-            // 只收集加法和减法运算符的位置
-            if (parts[i].equals("+") || parts[i].equals("-")) {
-                addSubOperatorPositions.add(i);
+    private int chooseParentheses(List<Operand> numbers, List<Character> operators) {
+        // 找到所有可以加括号的加减法运算符的位置
+        int[] positions = new int[operators.size()];
+        int count = 0;
+        for (int i = 0; i < operators.size(); i++) {
+            char operator = operators.get(i);
+            if ((operator == '+' || operator == '-')
+                    && combine(numbers.get(i).getPacked(), operator, numbers.get(i + 1).getPacked(), range) != REJECTED
+                    && isValidTree(buildTree(numbers, operators, i))) {
+                positions[count++] = i;
             }
         }
         
-        // 如果没有找到加减法运算符，则返回原表达式
-        if (addSubOperatorPositions.isEmpty()) {
-            return expression;
+        // 如果没有可行的位置，则不添加括号
+        if (count == 0) {
+            return -1;
         }
         
-        // 从所有加减法运算符位置中随机选择一个
-        int operatorPos = addSubOperatorPositions.get(random.nextInt(addSubOperatorPositions.size()));
-        
-        // 使用StringBuilder构建新的带括号的表达式
-        StringBuilder result = new StringBuilder();
-        
-        // 遍历表达式的每个部分，在适当位置添加括号
-        for (int i = 0; i < parts.length; i++) {
-            // 在加减法运算符前一个操作数前添加左括号
-            if (i == operatorPos - 1) {
-                result.append("( ");
+        // 从所有可行的位置中随机选择一个
+        return positions[random.nextInt(count)];
+    }
+
+    /**
+     * @return 表达式树可以计算并且结果有效
+     */
+    private boolean isValidTree(ExpressionNode tree) {
+        try {
+            return isValidResult(tree.getValue());
+        } catch (ArithmeticException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 按运算符优先级把操作数和运算符序列构建为表达式树
+     * @param numbers 操作数序列
+     * @param operators 运算符序列
+     * @param parenthesesPosition 被括号包围的运算符下标，-1 表示不加括号
+     * @return 表达式树的根节点
+     */
+    static ExpressionNode buildTree(List<Operand> numbers, List<Character> operators, int parenthesesPosition) {
+        int count = numbers.size();
+        ExpressionNode[] operands = new ExpressionNode[count];
+        char[] pending = new char[count];
+        int operandSize = 0;
+        int pendingSize = 0;
+
+        for (int i = 0; i < count; i++) {
+            ExpressionNode operand = new NumberNode(numbers.get(i));
+            if (i == parenthesesPosition) {
+                // 括号内的运算先结合为一个整体
+                operand = new OperatorNode(operators.get(i), operand, new NumberNode(numbers.get(i + 1)));
             }
-            // 添加当前部分（数字或运算符）
-            result.append(parts[i]).append(" ");
-            
-            // 在运算符后一个操作数后添加右括号
-            if (i == operatorPos + 1) {
-                // 如果后面还有运算符，在当前操作数后添加右括号
-                if (i + 1 < parts.length && (parts[i + 1].equals("+") || parts[i + 1].equals("-") || 
-                    parts[i + 1].equals("×") || parts[i + 1].equals("÷"))) {
-                    result.append(") ");
-                } 
-                // 如果是表达式的最后一个操作数，直接添加右括号
-                else if (i == parts.length - 1) {
-                    result.append(")");
-                }
+            operands[operandSize++] = operand;
+            if (i == parenthesesPosition) {
+                i++;
+            }
+            if (i == count - 1) {
+                break;
             }
+            char operator = operators.get(i);
+            // 左结合：栈顶运算符优先级不低于当前运算符时先规约
+            while (pendingSize > 0 && OperatorNode.precedence(pending[pendingSize - 1]) >= OperatorNode.precedence(operator)) {
+                ExpressionNode right = operands[--operandSize];
+                operands[operandSize - 1] = new OperatorNode(pending[--pendingSize], operands[operandSize - 1], right);
+            }
+            pending[pendingSize++] = operator;
         }
-        
-        // 确保括号正确闭合
-        String resultStr = result.toString().trim();
-        // 如果左括号数量大于右括号数量，在末尾添加右括号
-        if (countChar(resultStr, '(') > countChar(resultStr, ')')) {
-            resultStr += " )";
+        while (pendingSize > 0) {
+            ExpressionNode right = operands[--operandSize];
+            operands[operandSize - 1] = new OperatorNode(pending[--pendingSize], operands[operandSize - 1], right);
         }
-        
-        return resultStr;
+        return operands[0];
     }
 
     /**
-     * 计算字符串中特定字符的出现次数
-     * @param str 要检查的字符串
-     * @param target 要计数的目标字符
-     * @return 目标字符在字符串中的出现次数
+     * 按从左到右的顺序生成操作数和运算符，每一步都满足生成规则
+     * @param operatorCount 运算符的数量
+     * @param numbers 输出的操作数序列
+     * @param operators 输出的运算符序列
+     * @return 无法接上下一个运算符时返回 false
      */
-    private int countChar(String str, char target) {
-        return (int) str.chars().filter(ch -> ch == target).count();
+    private boolean generateNormalExpression(int operatorCount, List<Operand> numbers, List<Character> operators) {
+        if (operationTable == null) {
+            return generateByRetry(operatorCount, numbers, operators);
+        }
+        // 第一个数只从之后还能接上 operatorCount 个运算符的操作数中抽取
+        Operand first = chooseOperand(firstIntegers[operatorCount], firstIntegers[operatorCount].length,
+                firstFractions[operatorCount], firstFractions[operatorCount].length,
+                random.nextInt(Math.max(1, firstIntegers[operatorCount].length * integerWeight
+                        + firstFractions[operatorCount].length * fractionWeight)));
+        if (first == null) {
+            return false;
+        }
+        numbers.add(first);
+        int currentValue = operationTable.valueOf(first);
+        for (int i = 0; i < operatorCount; i++) {
+            // 结果之后还要能接上剩下的运算符
+            int minReach = operatorCount - i - 1;
+            // 避免同一个运算符连续出现三次
+            char banned = i >= 2 && operators.get(i - 1).equals(operators.get(i - 2)) ? operators.get(i - 1) : ' ';
+            // 按原生成概率，每个运算符的权重为其全部可行操作数的权重之和
+            int total = 0;
+            for (int op = 0; op < OPERATORS.length; op++) {
+                operatorWeights[op] = OPERATORS[op] == banned ? 0
+                        : operationTable.choiceCount(currentValue, op, false, minReach) * integerWeight
+                        + operationTable.choiceCount(currentValue, op, true, minReach) * fractionWeight;
+                total += operatorWeights[op];
+            }
+            if (total == 0) {
+                // 只有被禁止的运算符可行
+                return false;
+            }
+            int draw = random.nextInt(total);
+            int op = 0;
+            while (draw >= operatorWeights[op]) {
+                draw -= operatorWeights[op++];
+            }
+            Operand nextNumber = chooseOperand(
+                    operationTable.choices(currentValue, op, false), operationTable.choiceCount(currentValue, op, false, minReach),
+                    operationTable.choices(currentValue, op, true), operationTable.choiceCount(currentValue, op, true, minReach),
+                    draw);
+            currentValue = operationTable.apply(currentValue, op, nextNumber);
+            operators.add(OPERATORS[op]);
+            numbers.add(nextNumber);
+        }
+        return true;
     }
 
-    // 重命名原来的生成逻辑为generateNormalExpression
-    private String generateNormalExpression(int operatorCount) {
-        StringBuilder expression = new StringBuilder();
-        ArrayList<String> numbers = new ArrayList<>();
-        ArrayList<Character> operators = new ArrayList<>();
-        
-        // 首先生成第一个数
+    /**
+     * 按权重从整数候选和分数候选中取一个操作数
+     * @param integers 整数候选位置，只用前 integerCount 个
+     * @param fractions 分数候选位置，只用前 fractionCount 个
+     * @param draw 在 [0, integerCount * integerWeight + fractionCount * fractionWeight) 中均匀抽取的数
+     * @return 操作数，没有候选时返回 null
+     */
+    private Operand chooseOperand(int[] integers, int integerCount, int[] fractions, int fractionCount, int draw) {
+        if (draw < integerCount * integerWeight) {
+            return operandTable.integerAt(integers[draw / integerWeight]);
+        }
+        draw -= integerCount * integerWeight;
+        if (draw < fractionCount * fractionWeight) {
+            return operandTable.fractionAt(fractions[draw / fractionWeight]);
+        }
+        return null;
+    }
+
+    /**
+     * 范围超出运算表时，随机取运算符和操作数，不满足生成规则时重试
+     * @param operatorCount 运算符的数量
+     * @param numbers 输出的操作数序列
+     * @param operators 输出的运算符序列
+     * @return 多次尝试仍无法接上下一个运算符时返回 false
+     */
+    private boolean generateByRetry(int operatorCount, List<Operand> numbers, List<Character> operators) {
+        // 首先生成第一个数，运算过程使用打包的分数，避免每一步都创建 Fraction 对象
         numbers.add(generateNumber());
-        Fraction currentResult = ExpressionEvaluator.evaluate(numbers.get(0));
+        long currentResult = numbers.get(0).getPacked();
         
         // 记录连续的运算符
         char lastOperator = ' ';
@@ -167,15 +324,17 @@ public class ExpressionGenerator {
         
         // 生成剩余的数字和运算符
         for (int i = 0; i < operatorCount; i++) {
+            int operatorIndex;
             char operator;
-            String nextNumber;
+            Operand nextNumber;
             boolean validCombination = false;
             
             int maxAttempts = 10;
             int attempts = 0;
             
             while (!validCombination && attempts < maxAttempts) {
-                operator = generateOperator();
+                operatorIndex = random.nextInt(OPERATORS.length);
+                operator = OPERATORS[operatorIndex];
                 
                 // 避免连续使用相同的运算符超过两次
                 if (operator == lastOperator) {
@@ -189,422 +348,154 @@ public class ExpressionGenerator {
                 }
                 
                 nextNumber = generateNumber();
+                attempts++;
                 
-                try {
-                    Fraction nextValue = ExpressionEvaluator.evaluate(nextNumber);
-                    Fraction tempResult;
-                    
-                    // 根据运算符进行特殊处理
-                    switch (operator) {
-                        case '-':
-                            // 确保减法后的结果为正数且不太接近0
-                            if (currentResult.compareTo(nextValue) <= 0 || 
-                                currentResult.subtract(nextValue).getNumerator() < currentResult.getNumerator() / 4) {
-                                attempts++;
-                                continue;
-                            }
-                            tempResult = currentResult.subtract(nextValue);
-                            // 新增检查，确保中间结果不为负数
-                            if (tempResult.getNumerator() < 0) {
-                                attempts++;
-                                continue;
-                            }
-                            break;
-                        case '×':
-                            // 更严格地限制乘法结果的大小
-                            tempResult = currentResult.multiply(nextValue);
-                            if (tempResult.getNumerator() > range || 
-                                (nextValue.getDenominator() != 1 && currentResult.getDenominator() != 1)) {
-                                // 避免两个分数相乘
-                                attempts++;
-                                continue;
-                            }
-                            break;
-                        case '÷':
-                            // 确保除数不为0且结果为合适的分数
-                            if (nextValue.getNumerator() == 0 || 
-                                currentResult.compareTo(nextValue) >= 0 ||
-                                nextValue.getDenominator() > range/2) {
-                                attempts++;
-                                continue;
-                            }
-                            tempResult = currentResult.divide(nextValue);
-                            // 新增检查，确保中间结果不为负数
-                            if (tempResult.getNumerator() < 0) {
-                                attempts++;
-                                continue;
-                            }
-                            break;
-                        default: // 加法
-                            tempResult = currentResult.add(nextValue);
-                            // 限制加法结果不要过大
-                            if (tempResult.getNumerator() > range * 2) {
-                                attempts++;
-                                continue;
-                            }
-                            break;
-                    }
-                    
-                    if (isValidResult(tempResult)) {
-                        currentResult = tempResult;
-                        operators.add(operator);
-                        numbers.add(nextNumber);
-                        lastOperator = operator;
-                        validCombination = true;
-                    }
-                } catch (Exception e) {
-                    attempts++;
+                long tempResult = combine(currentResult, operator, nextNumber.getPacked(), range);
+                if (tempResult == REJECTED) {
                     continue;
                 }
-                attempts++;
+                currentResult = tempResult;
+                operators.add(operator);
+                numbers.add(nextNumber);
+                lastOperator = operator;
+                validCombination = true;
             }
             
             if (!validCombination) {
-                // 如果多次尝试都失败，减少运算符数量重新生成
-                return generateSimpleExpression(Math.max(1, operatorCount - 1));
-            }
-        }
-        
-        // 构建最终表达式
-        expression.append(numbers.get(0));
-        for (int i = 0; i < operators.size(); i++) {
-            expression.append(" ").append(operators.get(i)).append(" ").append(numbers.get(i + 1));
-        }
-        
-        return expression.toString();
-    }
-
-    /**
-     * 验证括号的完整性和正确性
-     * @param expression 要验证的表达式
-     * @return 如果括号使用正确返回true，否则返回false
-     */
-    private boolean isValidParentheses(String expression) {
-        int count = 0;
-        boolean hasLeft = false;
-        boolean hasRight = false;
-        
-        // 检查括号是否配对且位置正确
-        for (char c : expression.toCharArray()) {
-            if (c == '(') {
-                count++;
-                hasLeft = true;
-            } else if (c == ')') {
-                count--;
-                hasRight = true;
-            }
-            // 如果count小于0，说明右括号在左括号之前出现
-            if (count < 0) {
                 return false;
             }
         }
-        
-        // 确保括号是成对的，且表达式中确实包含了一对括号
-        return count == 0 && hasLeft && hasRight;
-    }
-
-    /**
-     * 生成一个随机数（整数或分数）
-     * @return 生成的数字字符串
-     */
-    private String generateNumber() {
-        int maxRange = Math.min(range, 9); // 确保最大范围不超过9
-
-        if (random.nextBoolean()) {
-            // 生成1到maxRange的整数
-            return Integer.toString(random.nextInt(maxRange) + 1);
-        } else {
-            // 生成真分数或带分数，但概率降低
-            if (random.nextInt(3) != 0) { // 66.7%的概率生成整数
-                return Integer.toString(random.nextInt(maxRange) + 1);
-            }
-            
-            int numerator = random.nextInt(maxRange - 1) + 1; // 分子范围1到maxRange-1
-            int denominator = random.nextInt(maxRange - 1) + 2; // 分母范围2到maxRange，确保分母至少为2
-            
-            if (numerator >= denominator) {
-                // 生成带分数，确保分子小于分母且整数部分较小
-                int whole = Math.min(2, numerator / denominator); // 限制整数部分最大为2
-                numerator = numerator % denominator;
-                if (numerator == 0) {
-                    return Integer.toString(whole);
-                }
-                return whole + "'" + numerator + "/" + denominator;
-            }
-            return numerator + "/" + denominator;
-        }
-    }
-
-    /**
-     * 随机生成一个运算符
-     * @return 运算符字符
-     */
-    private char generateOperator() {
-        char[] operators = {'+', '-', '×', '÷'};
-        return operators[random.nextInt(operators.length)];
+        return true;
     }
 
     /**
-     * 验证计算结果是否有效
-     * @param result 计算结果
-     * @return 如果结果有效返回true，否则返回false
+     * 从操作数表中随机取一个数（整数或分数）
+     * @return 生成的操作数
      */
-    public boolean isValidResult(Fraction result) {
-        // 检查结果是否为负数
-        if (result.getNumerator() < 0 || result.getDenominator() <= 0) {
-            return false;
-        }
-        
-        // 检查结果是否过大
-        if (result.getNumerator() > range * range) {
-            return false;
-        }
-        
-        // 检查结果是否为真分数（如果不是整数）
-        if (result.getDenominator() != 1 && 
-            Math.abs(result.getNumerator()) >= Math.abs(result.getDenominator())) {
-            return false;
+    private Operand generateNumber() {
+        // 5/6 的概率生成整数，1/6 的概率生成真分数或带分数
+        if (random.nextInt(6) != 0 || operandTable.fractionCount() == 0) {
+            return operandTable.integerAt(random.nextInt(operandTable.integerCount()));
         }
-        
-        return true;
+        return operandTable.fractionAt(random.nextInt(operandTable.fractionCount()));
     }
 
     /**
-     * 标准化表达式，使相同的题目具有相同的形式
-     * @param expression 原始表达式
-     * @return 标准化后的表达式
+     * 在当前结果后接上一个运算符和操作数，并检查生成规则
+     * @param current 当前结果（打包形式）
+     * @param operator 运算符
+     * @param next 操作数（打包形式）
+     * @param range 数值范围上限
+     * @return 新的结果（打包形式），不满足规则时返回 {@link #REJECTED}
      */
-    public String normalizeExpression(String expression) {
-        // 分割表达式
-        String[] parts = expression.split(" ");
-        StringBuilder result = new StringBuilder();
-        // 对于加法和乘法，对操作数排序
-        for (int i = 0; i < parts.length; i++) {
-            if (i % 2 == 1) { // 运算符位置
-                if ("+".equals(parts[i]) || "×".equals(parts[i])) {
-                    // 比较前后两个操作数，确保较小的在前
-                    String prev = parts[i-1];
-                    String next = parts[i+1];
-                    try {
-                        Fraction prevF = ExpressionEvaluator.evaluate(prev);
-                        Fraction nextF = ExpressionEvaluator.evaluate(next);
-                        if (prevF.compareTo(nextF) > 0) {
-                            // 交换操作数
-                            parts[i-1] = next;
-                            parts[i+1] = prev;
-                        }
-                    } catch (Exception e) {
-                        // 如果无法比较，保持原样
+    static long combine(long current, char operator, long next, int range) {
+        long result;
+        try {
+            // 根据运算符进行特殊处理
+            switch (operator) {
+                case '-':
+                    // 确保减法后的结果为正数且不太接近0
+                    if (FractionMath.compare(current, next) <= 0) {
+                        return REJECTED;
                     }
-                }
-            }
-            result.append(parts[i]);
-            if (i < parts.length - 1) {
-                result.append(" ");
+                    result = FractionMath.subtract(current, next);
+                    if (FractionMath.numerator(result) < FractionMath.numerator(current) / 4) {
+                        return REJECTED;
+                    }
+                    break;
+                case '×':
+                    // 更严格地限制乘法结果的大小，并避免两个分数相乘
+                    if (FractionMath.denominator(next) != 1 && FractionMath.denominator(current) != 1) {
+                        return REJECTED;
+                    }
+                    result = FractionMath.multiply(current, next);
+                    if (FractionMath.numerator(result) > range) {
+                        return REJECTED;
+                    }
+                    break;
+                case '÷':
+                    // 确保除数不为0且结果为合适的分数
+                    if (FractionMath.numerator(next) == 0 ||
+                        FractionMath.compare(current, next) >= 0 ||
+                        FractionMath.denominator(next) > range / 2) {
+                        return REJECTED;
+                    }
+                    result = FractionMath.divide(current, next);
+                    break;
+                default: // 加法
+                    result = FractionMath.add(current, next);
+                    // 限制加法结果不要过大
+                    if (FractionMath.numerator(result) > range * 2) {
+                        return REJECTED;
+                    }
+                    break;
             }
-
+        } catch (ArithmeticException e) {
+            return REJECTED;
         }
-        return result.toString();
+        // 确保中间结果不为负数且满足结果的整体要求
+        return isValidResult(FractionMath.numerator(result), FractionMath.denominator(result), range) ? result : REJECTED;
     }
 
     /**
-     * 表达式树节点类
+     * @return 生成的表达式数，含因最终结果无效而丢弃的
      */
-    private abstract class ExpressionNode {
-        String value;  // 数字或运算符
-        ExpressionNode left;
-        ExpressionNode right;
-        boolean needParentheses;
-        
-        public ExpressionNode(String value) {
-            this.value = value;
-        }
-        
-        @Override
-        public abstract String toString();
-    }
-
-    /**
-     * 数字节点类
-     */
-    private class NumberNode extends ExpressionNode {
-        public NumberNode(String value) {
-            super(value);
-        }
-        
-        @Override
-        public String toString() {
-            return value;
-        }
-    }
-
-    /**
-     * 运算符节点类
-     */
-    private class OperatorNode extends ExpressionNode {
-        String operator;
-        
-        public OperatorNode(String operator) {
-            super(operator);
-            this.operator = operator;
-        }
-        
-        @Override
-        public String toString() {
-            if (left == null && right == null) {
-                return operator;
-            }
-            
-            String leftStr = left.toString();
-            String rightStr = right.toString();
-            
-            // 根据运算符优先级决定是否需要括号
-            if (needParentheses) {
-                return "(" + leftStr + " " + operator + " " + rightStr + ")";
-            } else {
-                return leftStr + " " + operator + " " + rightStr;
-            }
-        }
+    public long getCandidates() {
+        return candidates;
     }
 
     /**
-     * 生成表达式树
-     * @param depth 剩余深度
-     * @return 表达式树的根节点
+     * @return 因最终结果无效而丢弃的表达式数
      */
-    private ExpressionNode generateExpressionTree(int depth) {
-        if (depth == 0 || random.nextInt(3) == 0) {
-            // 生成叶子节点（数字）
-            return new NumberNode(generateNumber());
-        }
-        
-        // 生成运算符节点
-        OperatorNode node = new OperatorNode(String.valueOf(generateOperator()));
-        
-        // 生成左右子树
-        node.left = generateExpressionTree(depth - 1);
-        node.right = generateExpressionTree(depth - 1);
-        
-        try {
-            // 验证当前子树的计算结果
-            String subExpression = node.toString();
-            if (!hasValidParentheses(subExpression)) {
-                return generateExpressionTree(depth);
-            }
-            
-            Fraction result = ExpressionEvaluator.evaluate(subExpression);
-            
-            // 如果子树结果无效，重新生成
-            if (!isValidResult(result)) {
-                return generateExpressionTree(depth);
-            }
-        } catch (Exception e) {
-            // 如果计算出错，重新生成
-            return generateExpressionTree(depth);
-        }
-        
-        return node;
+    public long getRejected() {
+        return rejected;
     }
 
     /**
-     * 判断当前运算符是否比子节点运算符优先级低
+     * @return 接不上剩余运算符而减少运算符个数重新生成的次数
      */
-    private boolean isLowerPrecedence(String current, ExpressionNode child) {
-        if (!(child instanceof OperatorNode)) return false;
-        
-        OperatorNode childOp = (OperatorNode)child;
-        int currentPrecedence = getOperatorPrecedence(current);
-        int childPrecedence = getOperatorPrecedence(childOp.operator);
-        
-        return currentPrecedence < childPrecedence;
+    public long getRetries() {
+        return retries;
     }
 
     /**
-     * 获取运算符优先级
+     * 验证计算结果是否有效
+     * @param result 计算结果
+     * @return 如果结果有效返回true，否则返回false
      */
-    private int getOperatorPrecedence(String operator) {
-        switch (operator) {
-            case "+":
-            case "-":
-                return 1;
-            case "×":
-            case "÷":
-                return 2;
-            default:
-                return 0;
+    public boolean isValidResult(Fraction result) {
+        // 超出 int 范围的结果必然过大
+        if (result.isBig()) {
+            return false;
         }
+        return isValidResult(result.getNumerator(), result.getDenominator(), range);
     }
 
     /**
-     * 验证表达式是否有效
-     * @param expression 要验证的表达式
-     * @return 如果表达式有效返回true，否则返回false
+     * 验证分子分母形式的计算结果是否有效
+     * @param numerator 分子
+     * @param denominator 分母
+     * @param range 数值范围上限
+     * @return 如果结果有效返回true，否则返回false
      */
-    private boolean isValidExpression(String expression) {
-        try {
-            // 检查括号是否匹配且合法
-            if (!hasValidParentheses(expression)) {
-                return false;
-            }
-
-            // 如果包含括号，先检查括号内的计算结果
-            if (expression.contains("(")) {
-                int start = expression.indexOf("(");
-                int end = expression.lastIndexOf(")");
-                if (start >= 0 && end >= 0) {
-                    String subExpr = expression.substring(start + 1, end).trim();
-                    Fraction subResult = ExpressionEvaluator.evaluate(subExpr);
-                    // 确保括号内的计算结果也是有效的
-                    if (!isValidResult(subResult)) {
-                        return false;
-                    }
-                }
-            }
-
-            // 检查整个表达式的结果
-            Fraction result = ExpressionEvaluator.evaluate(expression);
-            return isValidResult(result);
-        } catch (Exception e) {
+    static boolean isValidResult(int numerator, int denominator, int range) {
+        // 检查结果是否为负数
+        if (numerator < 0 || denominator <= 0) {
             return false;
         }
-    }
-
-    /**
-     * 检查括号是否合法
-     */
-    private boolean hasValidParentheses(String expression) {
-        int count = 0;
-        boolean hasContent = false;
         
-        // 不允许表达式以右括号开始或左括号结束
-        if (expression.trim().startsWith(")") || expression.trim().endsWith("(")) {
+        // 检查结果是否过大
+        if (numerator > range * range) {
             return false;
         }
         
-        for (int i = 0; i < expression.length(); i++) {
-            char c = expression.charAt(i);
-            if (c == '(') {
-                count++;
-                // 检查左括号后是否有内容
-                hasContent = false;
-            } else if (c == ')') {
-                count--;
-                // 如果括号内没有内容，返回false
-                if (!hasContent) {
-                    return false;
-                }
-            } else if (!Character.isWhitespace(c)) {
-                hasContent = true;
-            }
-            
-            // 如果count小于0，说明右括号多于左括号
-            if (count < 0) {
-                return false;
-            }
+        // 检查结果是否为真分数（如果不是整数）
+        if (denominator != 1 && 
+            Math.abs(numerator) >= Math.abs(denominator)) {
+            return false;
         }
         
-        // count应该为0，表示括号配对
-        return count == 0;
+        return true;
     }
 
     /**
@@ -614,19 +505,41 @@ public class ExpressionGenerator {
     public static class ExpressionResult {
         private final String expression;
         private final Fraction result;
+        private final ExpressionNode tree;
 
         public ExpressionResult(String expression, Fraction result) {
             this.expression = expression;
             this.result = result;
+            this.tree = null;
         }
 
+        /**
+         * 只保存表达式树，不生成字符串。标准化会原地调整树，需要字符串时按树的当前形式生成
+         * @param tree   表达式树，节点带有各自的值
+         * @param result 计算结果
+         */
+        public ExpressionResult(ExpressionNode tree, Fraction result) {
+            this.expression = null;
+            this.result = result;
+            this.tree = tree;
+        }
+
+        /**
+         * @return 表达式；只保存了树时由树的当前形式生成，每次调用都重新生成
+         */
         public String getExpression() {
-            return expression;
+            return expression != null ? expression : tree.toString();
         }
 
         public Fraction getResult() {
             return result;
         }
+
+        /**
+         * @return 表达式树，节点带有各自的值，没有时为 null
+         */
+        public ExpressionNode getTree() {
+            return tree;
+        }
     }
 }
-
@@ -0,0 +1,122 @@
+package com.mathgenerator.generator;
+
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.model.Operand;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @date: 2025/03/22
+ * @description: 操作数表
+ * 生成器的操作数只来自一个很小的集合（1~9 的整数以及分母不超过 9 的真分数、带分数），
+ * 因此按取值范围一次性创建全部操作数并缓存其文本和值，生成时按下标取用，
+ * 不再拼接字符串再解析。相同文本共享同一个 Operand，相同取值共享同一个 Fraction。
+ */
+public final class OperandTable {
+    private static final Map<Integer, OperandTable> CACHE = new HashMap<>();
+
+    private final List<Operand> operands = new ArrayList<>();  // 去重后的全部操作数，下标即 Operand.getIndex()
+    private final Operand[] integers;   // 整数候选，按生成概率排列
+    private final Operand[] fractions;  // 分数候选，每个（分子, 分母）组合占一个位置
+
+    private OperandTable(int range) {
+        int maxRange = Math.min(range, 9); // 确保最大范围不超过9
+        Map<String, Operand> byText = new HashMap<>();
+        Map<Fraction, Fraction> values = new HashMap<>();
+
+        integers = new Operand[Math.max(0, maxRange)];
+        for (int i = 1; i <= maxRange; i++) {
+            integers[i - 1] = intern(Integer.toString(i), byText, values);
+        }
+
+        // 分子范围1到maxRange-1，分母范围2到maxRange
+        fractions = new Operand[Math.max(0, maxRange - 1) * Math.max(0, maxRange - 1)];
+        int position = 0;
+        for (int numerator = 1; numerator < maxRange; numerator++) {
+            for (int denominator = 2; denominator <= maxRange; denominator++) {
+                fractions[position++] = intern(fractionText(numerator, denominator), byText, values);
+            }
+        }
+    }
+
+    /**
+     * 获取指定取值范围的操作数表，同一范围只创建一次
+     * @param range 生成数字的范围上限
+     * @return 操作数表
+     */
+    public static OperandTable forRange(int range) {
+        synchronized (CACHE) {
+            OperandTable table = CACHE.get(range);
+            if (table == null) {
+                table = new OperandTable(range);
+                CACHE.put(range, table);
+            }
+            return table;
+        }
+    }
+
+    /**
+     * 按原生成规则得到分数的文本：分子不小于分母时生成整数部分不超过2的带分数
+     */
+    private static String fractionText(int numerator, int denominator) {
+        if (numerator >= denominator) {
+            int whole = Math.min(2, numerator / denominator); // 限制整数部分最大为2
+            numerator = numerator % denominator;
+            if (numerator == 0) {
+                return Integer.toString(whole);
+            }
+            return whole + "'" + numerator + "/" + denominator;
+        }
+        return numerator + "/" + denominator;
+    }
+
+    private Operand intern(String text, Map<String, Operand> byText, Map<Fraction, Fraction> values) {
+        Operand operand = byText.get(text);
+        if (operand == null) {
+            Fraction value = new Fraction(text);
+            Fraction shared = values.get(value);
+            if (shared == null) {
+                values.put(value, value);
+                shared = value;
+            }
+            operand = new Operand(operands.size(), text, shared);
+            operands.add(operand);
+            byText.put(text, operand);
+        }
+        return operand;
+    }
+
+    /**
+     * @return 去重后的操作数个数
+     */
+    public int size() {
+        return operands.size();
+    }
+
+    /**
+     * @param index 操作数下标
+     * @return 对应的操作数
+     */
+    public Operand get(int index) {
+        return operands.get(index);
+    }
+
+    public int integerCount() {
+        return integers.length;
+    }
+
+    public Operand integerAt(int position) {
+        return integers[position];
+    }
+
+    public int fractionCount() {
+        return fractions.length;
+    }
+
+    public Operand fractionAt(int position) {
+        return fractions[position];
+    }
+}
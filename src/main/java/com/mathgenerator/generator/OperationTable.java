@@ -0,0 +1,281 @@
+package com.mathgenerator.generator;
+
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.model.FractionMath;
+import com.mathgenerator.model.Operand;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @date: 2025/03/23
+ * @description: 运算表
+ * 范围较小时，生成过程中可能出现的中间结果是有限的：从全部操作数出发，
+ * 按生成规则连续运算 MAX_OPERATORS - 1 次即可得到所有可能作为左操作数的值。
+ * 运算表为每个这样的值预先计算它与每个运算符、每个操作数组合后的结果，
+ * 并提前做完 ExpressionGenerator.combine 中的全部检查，
+ * 生成时每一步只需一次数组查找。表创建后只读，可在多个线程间共享。
+ * 表中还为每个值和运算符建立了可行操作数的索引：能通过检查的整数、分数候选位置分别列出，
+ * 并按结果还能再接几个运算符从多到少排列，生成时直接从中抽取，每次抽取都能成功，
+ * 也不会走进接不上剩余运算符的死路。
+ */
+public final class OperationTable {
+    /**
+     * 使用运算表的最大范围
+     */
+    public static final int MAX_RANGE = 10;
+    /**
+     * apply 的返回值，表示该组合不满足生成规则
+     */
+    public static final int REJECTED = -1;
+
+    private static final Map<Integer, OperationTable> CACHE = new HashMap<>();
+
+    private final OperandTable operands;
+    private final int[] operandValues;  // 操作数下标 -> 值下标
+    private final Map<Long, Integer> index = new HashMap<>();  // 打包的值 -> 值下标
+    private long[] values;              // 值下标 -> 打包的值
+    private int valueCount;
+    private int[][] rows;               // 值下标 -> [运算符下标 * 操作数个数 + 操作数下标] -> 结果的值下标
+    private int[] reach;                // 值下标 -> 之后最多还能接的运算符个数，不超过 MAX_OPERATORS
+    // 值下标 * 运算符个数 + 运算符下标 -> 可行的整数 / 分数候选位置，按结果的 reach 从大到小排列
+    private int[][] integerChoices;
+    private int[][] fractionChoices;
+    // 同上 -> [d] 为结果的 reach 不小于 d 的候选个数，即 choices 中可用的前缀长度
+    private int[][] integerCounts;
+    private int[][] fractionCounts;
+
+    private OperationTable(int range) {
+        this.operands = OperandTable.forRange(range);
+        int operandCount = operands.size();
+        values = new long[64];
+        rows = new int[64][];
+
+        // 第 0 层：全部操作数的值
+        operandValues = new int[operandCount];
+        int[] frontier = new int[operandCount];
+        int frontierSize = 0;
+        for (int i = 0; i < operandCount; i++) {
+            int before = valueCount;
+            operandValues[i] = intern(operands.get(i).getPacked(), index);
+            if (valueCount > before) {
+                frontier[frontierSize++] = operandValues[i];
+            }
+        }
+
+        // 逐层展开，只有可能作为左操作数的值才需要计算整行
+        for (int depth = 0; depth < ExpressionGenerator.MAX_OPERATORS; depth++) {
+            int[] next = new int[16];
+            int nextSize = 0;
+            for (int f = 0; f < frontierSize; f++) {
+                int value = frontier[f];
+                int[] row = new int[ExpressionGenerator.OPERATORS.length * operandCount];
+                for (int op = 0; op < ExpressionGenerator.OPERATORS.length; op++) {
+                    for (int o = 0; o < operandCount; o++) {
+                        long result = ExpressionGenerator.combine(values[value], ExpressionGenerator.OPERATORS[op],
+                                operands.get(o).getPacked(), range);
+                        if (result == ExpressionGenerator.REJECTED) {
+                            row[op * operandCount + o] = REJECTED;
+                            continue;
+                        }
+                        int before = valueCount;
+                        int resultValue = intern(result, index);
+                        row[op * operandCount + o] = resultValue;
+                        if (valueCount > before && depth + 1 < ExpressionGenerator.MAX_OPERATORS) {
+                            if (nextSize == next.length) {
+                                next = Arrays.copyOf(next, nextSize * 2);
+                            }
+                            next[nextSize++] = resultValue;
+                        }
+                    }
+                }
+                rows[value] = row;
+            }
+            frontier = next;
+            frontierSize = nextSize;
+        }
+        values = Arrays.copyOf(values, valueCount);
+        rows = Arrays.copyOf(rows, valueCount);
+        computeReach();
+        buildChoices();
+    }
+
+    /**
+     * 从全 0 开始迭代 MAX_OPERATORS 次：值能再接 d 个运算符，当且仅当某个组合的结果能再接 d - 1 个
+     */
+    private void computeReach() {
+        reach = new int[valueCount];
+        for (int d = 1; d <= ExpressionGenerator.MAX_OPERATORS; d++) {
+            int[] next = new int[valueCount];
+            for (int value = 0; value < valueCount; value++) {
+                int[] row = rows[value];
+                if (row == null) {
+                    continue;
+                }
+                for (int result : row) {
+                    if (result != REJECTED) {
+                        next[value] = Math.max(next[value], reach[result] + 1);
+                    }
+                }
+            }
+            reach = next;
+        }
+    }
+
+    private void buildChoices() {
+        int operatorCount = ExpressionGenerator.OPERATORS.length;
+        integerChoices = new int[valueCount * operatorCount][];
+        fractionChoices = new int[valueCount * operatorCount][];
+        integerCounts = new int[valueCount * operatorCount][];
+        fractionCounts = new int[valueCount * operatorCount][];
+        for (int value = 0; value < valueCount; value++) {
+            if (rows[value] == null) {
+                continue;
+            }
+            for (int op = 0; op < operatorCount; op++) {
+                int key = value * operatorCount + op;
+                integerCounts[key] = new int[ExpressionGenerator.MAX_OPERATORS + 1];
+                integerChoices[key] = choices(value, op, false, integerCounts[key]);
+                fractionCounts[key] = new int[ExpressionGenerator.MAX_OPERATORS + 1];
+                fractionChoices[key] = choices(value, op, true, fractionCounts[key]);
+            }
+        }
+    }
+
+    /**
+     * @param counts 输出：counts[d] 为结果的 reach 不小于 d 的候选个数
+     * @return 可行的候选位置，按结果的 reach 从大到小排列，reach 相同时按位置排列
+     */
+    private int[] choices(int value, int operatorIndex, boolean fraction, int[] counts) {
+        int positions = fraction ? operands.fractionCount() : operands.integerCount();
+        int[] chosen = new int[positions];
+        int size = 0;
+        for (int d = ExpressionGenerator.MAX_OPERATORS; d >= 0; d--) {
+            for (int p = 0; p < positions; p++) {
+                Operand operand = fraction ? operands.fractionAt(p) : operands.integerAt(p);
+                int result = apply(value, operatorIndex, operand);
+                if (result != REJECTED && reach[result] == d) {
+                    chosen[size++] = p;
+                }
+            }
+            counts[d] = size;
+        }
+        return Arrays.copyOf(chosen, size);
+    }
+
+    /**
+     * 获取指定取值范围的运算表，同一范围只创建一次
+     * @param range 生成数字的范围上限，不能超过 {@link #MAX_RANGE}
+     * @return 运算表
+     */
+    public static OperationTable forRange(int range) {
+        if (range > MAX_RANGE) {
+            throw new IllegalArgumentException("Range too large for operation table: " + range);
+        }
+        synchronized (CACHE) {
+            OperationTable table = CACHE.get(range);
+            if (table == null) {
+                table = new OperationTable(range);
+                CACHE.put(range, table);
+            }
+            return table;
+        }
+    }
+
+    private int intern(long value, Map<Long, Integer> index) {
+        Integer existing = index.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (valueCount == values.length) {
+            values = Arrays.copyOf(values, valueCount * 2);
+            rows = Arrays.copyOf(rows, valueCount * 2);
+        }
+        values[valueCount] = value;
+        index.put(value, valueCount);
+        return valueCount++;
+    }
+
+    /**
+     * @param operand 操作数
+     * @return 操作数的值在表中的下标
+     */
+    public int valueOf(Operand operand) {
+        return operandValues[operand.getIndex()];
+    }
+
+    /**
+     * 查表得到 value op operand 的结果
+     * @param value 左操作数的值下标
+     * @param operatorIndex 运算符下标（+ - × ÷ 依次为 0 1 2 3）
+     * @param operand 右操作数
+     * @return 结果的值下标，不满足生成规则时返回 {@link #REJECTED}
+     */
+    public int apply(int value, int operatorIndex, Operand operand) {
+        return rows[value][operatorIndex * operandValues.length + operand.getIndex()];
+    }
+
+    /**
+     * @param value 值下标
+     * @return 之后最多还能接的运算符个数，不超过 MAX_OPERATORS
+     */
+    public int reach(int value) {
+        return reach[value];
+    }
+
+    /**
+     * @param value         左操作数的值下标，必须是可以再接运算符的值
+     * @param operatorIndex 运算符下标
+     * @param fraction      取分数候选还是整数候选
+     * @return 可行的候选位置（OperandTable.integerAt / fractionAt 的参数），按结果的 reach 从大到小排列
+     */
+    public int[] choices(int value, int operatorIndex, boolean fraction) {
+        int key = value * ExpressionGenerator.OPERATORS.length + operatorIndex;
+        return fraction ? fractionChoices[key] : integerChoices[key];
+    }
+
+    /**
+     * @param value         左操作数的值下标，必须是可以再接运算符的值
+     * @param operatorIndex 运算符下标
+     * @param fraction      取分数候选还是整数候选
+     * @param minReach      结果之后至少还要能接的运算符个数
+     * @return choices 中满足 minReach 的前缀长度
+     */
+    public int choiceCount(int value, int operatorIndex, boolean fraction, int minReach) {
+        int key = value * ExpressionGenerator.OPERATORS.length + operatorIndex;
+        return (fraction ? fractionCounts[key] : integerCounts[key])[minReach];
+    }
+
+    /**
+     * @param packed 打包形式的值
+     * @return 值在表中的下标，不是任何操作数或中间结果时返回 -1
+     */
+    public int indexOf(long packed) {
+        Integer value = index.get(packed);
+        return value == null ? -1 : value;
+    }
+
+    /**
+     * @param value 值下标
+     * @return 打包形式的值
+     */
+    public long packedValue(int value) {
+        return values[value];
+    }
+
+    /**
+     * @param value 值下标
+     * @return 分数形式的值
+     */
+    public Fraction value(int value) {
+        return Fraction.valueOf(values[value]);
+    }
+
+    /**
+     * @return 表中不同值的个数
+     */
+    public int size() {
+        return valueCount;
+    }
+}
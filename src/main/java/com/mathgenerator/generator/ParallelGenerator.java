@@ -0,0 +1,477 @@
+package com.mathgenerator.generator;
+
+import com.mathgenerator.generator.ExpressionGenerator.ExpressionResult;
+import com.mathgenerator.model.Fingerprint;
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.service.ExpressionEvaluator;
+import com.mathgenerator.service.ExpressionNormalizer;
+import com.mathgenerator.util.BloomFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @date: 2025/03/27
+ * @description: 多线程生成题目
+ * 每个线程使用各自的 ExpressionGenerator 和由同一个 SplittableRandom 拆分出的随机数，
+ * 生成的题目按标准形式的指纹在共享的 DuplicateFilter 中去重，恰好得到 n 道不重复的题目，
+ * 只有通过去重的题目才转换为字符串。
+ * 通过去重的题目经有界队列交给调用线程逐个处理，调用方可以边生成边写文件，
+ * 此时内存中只保留每道题的 128 位指纹。
+ * 设置内存预算后，流式生成时每段只在内存中保留有限个指纹，其余写入临时文件，题目数量不受堆大小限制。
+ * 指定种子后结果可以重现：始终在当前线程生成，同一种子、同一分片总是得到相同的题目和顺序。
+ * 分片按答案划分题目空间（见 AnswerShard），标准化不改变答案，各分片的题目天然不重复，
+ * 多个进程可以各自生成一片而不需要协调。生成的题目在标准化和去重之前就按答案判断是否属于本片，
+ * 其他分片的题目只花费生成本身。开启倒推生成时只为本片的答案倒推题目，不需要丢弃，
+ * 但 BackwardGenerator 只构造乘除之前没有加减（第一个运算符加括号除外）的题目，题目空间比随机生成小。
+ * 指定答案时改用 BackwardGenerator 从答案倒推题目，n 道题平均分给各个答案。
+ * 可以在去重前加一层按题目数量确定大小的布隆过滤器，一定是新题目的跳过精确查找。
+ */
+public class ParallelGenerator {
+    /**
+     * 每个工作线程在队列中最多积压的题目数
+     */
+    private static final int QUEUE_CAPACITY_PER_THREAD = 1024;
+
+    private final int range;    // 数值范围上限
+    private final int threads;  // 线程数
+    private final boolean verify;  // 是否重新计算每道题的答案
+    private double bloomFalsePositiveRate;  // 布隆过滤器的目标误判率，为 0 时不使用
+    private BloomFilter bloomFilter;    // 最近一次生成使用的布隆过滤器
+    private long memoryBudget;  // 流式生成时内存中保留指纹的字节数，为 0 时全部保留在内存中
+    private List<Fraction> answers;     // 指定的答案，为 null 时随机生成
+    private boolean seeded;     // 是否指定了种子
+    private long seed;
+    private int shardIndex;     // 分片下标，从 0 开始
+    private int shardCount = 1; // 分片数
+    private boolean backwardOnly;   // 是否按答案比例倒推生成全部题目
+
+    // 最近一次生成中各工作线程的生成器统计之和
+    private final LongAdder candidates = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private int generated;
+
+    /**
+     * 题目的处理方，只在调用 generate 的线程中被调用
+     */
+    public interface ProblemConsumer {
+        /**
+         * @param expression 标准化后的题目
+         * @param result     答案
+         */
+        void accept(String expression, Fraction result) throws IOException;
+    }
+
+    /**
+     * @param range   生成数字的范围上限
+     * @param threads 线程数，为 1 时在当前线程生成
+     */
+    public ParallelGenerator(int range, int threads) {
+        this(range, threads, false);
+    }
+
+    /**
+     * @param range   生成数字的范围上限
+     * @param threads 线程数，为 1 时在当前线程生成
+     * @param verify  是否在接受每道题前解析标准化后的题目并重新计算答案，
+     *                校验在各工作线程中进行，不增加写文件线程的负担
+     */
+    public ParallelGenerator(int range, int threads, boolean verify) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.range = range;
+        this.threads = threads;
+        this.verify = verify;
+    }
+
+    /**
+     * 之后的每次生成都在精确去重前加一层布隆过滤器，按题目数量和目标误判率确定大小
+     * @param falsePositiveRate 目标误判率，在 (0, 1) 之间
+     */
+    public void enableBloomFilter(double falsePositiveRate) {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        this.bloomFalsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * 流式生成时去重只在内存中保留 memoryBytes 字节的指纹，其余写入系统临时目录中的有序文件
+     * @param memoryBytes 内存预算，为 0 时全部指纹保留在内存中
+     */
+    public void setMemoryBudget(long memoryBytes) {
+        if (memoryBytes < 0) {
+            throw new IllegalArgumentException("Memory budget must not be negative: " + memoryBytes);
+        }
+        this.memoryBudget = memoryBytes;
+    }
+
+    /**
+     * 之后的每次生成都只生成答案为 answers 之一的题目，题目平均分给各个答案
+     * @param answers 答案，为 null 时恢复随机生成
+     * @throws IllegalArgumentException 范围超出运算表，或某个答案在当前范围内无法得到
+     */
+    public void setAnswers(List<Fraction> answers) {
+        if (answers != null) {
+            if (answers.isEmpty()) {
+                throw new IllegalArgumentException("No answers given");
+            }
+            if (range > OperationTable.MAX_RANGE) {
+                throw new IllegalArgumentException("Range too large for answer targeting: " + range);
+            }
+            BackwardGenerator backward = new BackwardGenerator(range, new SplittableRandom());
+            for (Fraction answer : answers) {
+                if (!backward.canReach(answer)) {
+                    throw new IllegalArgumentException("No problem in range " + range + " has answer " + answer);
+                }
+            }
+            answers = new ArrayList<>(answers);
+        }
+        this.answers = answers;
+    }
+
+    /**
+     * 之后的每次生成都使用该种子，并且始终在当前线程生成，使结果可以重现
+     * @param seed 种子
+     */
+    public void setSeed(long seed) {
+        this.seeded = true;
+        this.seed = seed;
+    }
+
+    /**
+     * 之后的每次生成都只生成第 index 片的题目，不同分片的题目一定不重复。
+     * 指定了答案时只使用其中属于本片的答案
+     * @param index 分片下标，在 [0, count) 之间
+     * @param count 分片数
+     * @throws IllegalArgumentException 分片无效
+     */
+    public void setShard(int index, int count) {
+        if (count <= 0 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Invalid shard: " + index + "/" + count);
+        }
+        this.shardIndex = index;
+        this.shardCount = count;
+    }
+
+    /**
+     * @return 生成使用的随机数：指定种子时各分片依次从同一个 SplittableRandom 拆分得到，否则随机
+     */
+    private SplittableRandom newRandom() {
+        if (!seeded) {
+            return new SplittableRandom();
+        }
+        SplittableRandom root = new SplittableRandom(seed);
+        for (int i = 0; i < shardIndex; i++) {
+            root.split();
+        }
+        return root.split();
+    }
+
+    /**
+     * 之后的每次生成都按答案在全部题目中的比例选择本片的答案，再由 BackwardGenerator 倒推出题目。
+     * 分片时不需要丢弃其他分片的题目，但题目只有 BackwardGenerator 能构造的形式
+     * @param backwardOnly 是否倒推生成
+     * @throws IllegalArgumentException 范围超出运算表
+     */
+    public void setBackwardOnly(boolean backwardOnly) {
+        if (backwardOnly && range > OperationTable.MAX_RANGE) {
+            throw new IllegalArgumentException("Range too large for backward generation: " + range);
+        }
+        this.backwardOnly = backwardOnly;
+    }
+
+    /**
+     * @return 答案是否属于当前分片
+     */
+    private boolean inShard(Fraction answer) {
+        return shardCount == 1 || AnswerShard.contains(answer, shardIndex, shardCount);
+    }
+
+    /**
+     * @return 指定的答案中属于当前分片的答案
+     * @throws IllegalArgumentException 没有答案属于当前分片
+     */
+    private List<Fraction> shardAnswers() {
+        List<Fraction> inShard = new ArrayList<>();
+        for (Fraction answer : answers) {
+            if (AnswerShard.contains(answer, shardIndex, shardCount)) {
+                inShard.add(answer);
+            }
+        }
+        if (inShard.isEmpty()) {
+            throw new IllegalArgumentException("None of the answers falls in shard " + shardIndex + "/" + shardCount);
+        }
+        return inShard;
+    }
+
+    /**
+     * @return 最近一次生成使用的布隆过滤器，未启用时为 null
+     */
+    public BloomFilter getBloomFilter() {
+        return bloomFilter;
+    }
+
+    /**
+     * 生成不重复的题目
+     * @param n 题目数量
+     * @return 标准化后的题目 -> 答案，恰好 n 项，按生成顺序排列
+     */
+    public Map<String, Fraction> generate(int n) {
+        Map<String, Fraction> expressions = new LinkedHashMap<>(n * 4 / 3 + 1);
+        try {
+            // 题目字符串反正要保存在结果中，按 64 位指纹去重并在指纹相同时比较字符串
+            generate(n, DuplicateFilter.exact(n, threads), expressions::put);
+        } catch (IOException e) {
+            // 写入 Map 不会抛出 IOException
+            throw new IllegalStateException(e);
+        }
+        return expressions;
+    }
+
+    /**
+     * 生成不重复的题目，每道题通过去重后立即交给 consumer
+     * @param n        题目数量
+     * @param consumer 题目的处理方，恰好被调用 n 次
+     * @throws IOException consumer 处理失败
+     */
+    public void generate(int n, ProblemConsumer consumer) throws IOException {
+        // 不保留题目字符串，只按 128 位指纹去重
+        generate(n, memoryBudget > 0 ? DuplicateFilter.spilling(memoryBudget, threads)
+                : DuplicateFilter.wide(n, threads), consumer);
+    }
+
+    private void generate(int n, DuplicateFilter seen, ProblemConsumer consumer) throws IOException {
+        if (bloomFalsePositiveRate > 0) {
+            bloomFilter = new BloomFilter(n, bloomFalsePositiveRate);
+            seen = DuplicateFilter.bloom(seen, bloomFilter);
+        }
+        // 指定答案时按答案配额生成，开启倒推生成时按本片答案的比例生成，否则随机生成
+        AnswerQuota quota = answers == null ? null : new AnswerQuota(shardAnswers(), n);
+        AnswerShard shard = answers == null && backwardOnly ? new AnswerShard(range, shardIndex, shardCount) : null;
+        SplittableRandom random = newRandom();
+        candidates.reset();
+        rejected.reset();
+        retries.reset();
+        generated = n;
+        try (DuplicateFilter filter = seen) {
+            // 多线程时题目的顺序取决于线程调度，指定种子时只在当前线程生成
+            if (threads == 1 || seeded) {
+                generateSequential(n, random, quota, shard, filter, consumer);
+            } else {
+                generateParallel(n, random, quota, shard, filter, consumer);
+            }
+        }
+    }
+
+    private void generateSequential(int n, SplittableRandom random, AnswerQuota quota, AnswerShard shard,
+                                    DuplicateFilter seen, ProblemConsumer consumer) throws IOException {
+        Source source = new Source(random, quota, shard, 0);
+        ExpressionNormalizer normalizer = new ExpressionNormalizer();
+        Fingerprint fingerprint = new Fingerprint();
+        int count = 0;
+        try {
+            while (count < n) {
+                ExpressionResult result = source.next();
+                if (!inShard(result.getResult())) {
+                    continue;
+                }
+                normalizer.fingerprint(result.getTree(), fingerprint);
+                String normalizedExpression = seen.add(fingerprint, result.getTree());
+                if (normalizedExpression == null) {
+                    source.duplicate();
+                } else if (source.accept()) {
+                    verify(normalizedExpression, result.getResult());
+                    consumer.accept(normalizedExpression, result.getResult());
+                    count++;
+                }
+            }
+        } finally {
+            collectStatistics(source);
+        }
+    }
+
+    private void generateParallel(int n, SplittableRandom seed, AnswerQuota quota, AnswerShard shard,
+                                  DuplicateFilter seen, ProblemConsumer consumer) throws IOException {
+        AtomicInteger count = new AtomicInteger();
+        BlockingQueue<ExpressionResult> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY_PER_THREAD * threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                SplittableRandom random = seed.split();
+                int worker = i;
+                futures.add(executor.submit(() -> {
+                    work(n, new Source(random, quota, shard, worker), seen, count, queue);
+                    return null;
+                }));
+            }
+            // 恰好有 n 道题进入队列，在当前线程依次取出处理
+            for (int written = 0; written < n; ) {
+                ExpressionResult problem = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (problem == null) {
+                    checkWorkers(futures);
+                    continue;
+                }
+                consumer.accept(problem.getExpression(), problem.getResult());
+                written++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Generation interrupted", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 单个线程的生成循环，题目总数达到 n 时结束
+     */
+    private void work(int n, Source source, DuplicateFilter seen, AtomicInteger count,
+                      BlockingQueue<ExpressionResult> queue) throws InterruptedException {
+        ExpressionNormalizer normalizer = new ExpressionNormalizer();
+        Fingerprint fingerprint = new Fingerprint();
+        try {
+            while (count.get() < n) {
+                ExpressionResult result = source.next();
+                if (result == null) {
+                    // 全部答案的配额都已满
+                    break;
+                }
+                if (!inShard(result.getResult())) {
+                    continue;
+                }
+                normalizer.fingerprint(result.getTree(), fingerprint);
+                String normalizedExpression = seen.add(fingerprint, result.getTree());
+                if (normalizedExpression == null) {
+                    source.duplicate();
+                    continue;
+                }
+                if (!source.accept()) {
+                    continue;
+                }
+                // 多个线程可能同时通过去重，只有前 n 道题进入队列
+                if (count.incrementAndGet() <= n) {
+                    verify(normalizedExpression, result.getResult());
+                    queue.put(new ExpressionResult(normalizedExpression, result.getResult()));
+                }
+            }
+        } finally {
+            collectStatistics(source);
+        }
+    }
+
+    /**
+     * 一个线程的题目来源：指定答案时为配额未满的答案倒推生成，开启倒推生成时为本片按比例选择的答案倒推生成，
+     * 否则随机生成
+     */
+    private final class Source {
+        private final SplittableRandom random;
+        private final ExpressionGenerator generator;
+        private final BackwardGenerator backward;
+        private final AnswerQuota quota;
+        private final AnswerShard shard;
+        private int cursor;     // 下一次从第几个答案开始找
+        private int answer = -1;    // 最近一道题的答案下标
+        private long backwardCandidates;    // 倒推生成的题目数
+
+        Source(SplittableRandom random, AnswerQuota quota, AnswerShard shard, int cursor) {
+            this.random = random;
+            this.generator = new ExpressionGenerator(range, random);
+            this.backward = quota == null && shard == null ? null : new BackwardGenerator(range, random);
+            this.quota = quota;
+            this.shard = shard;
+            this.cursor = cursor;
+        }
+
+        /**
+         * @return 下一道未标准化的题目，全部答案的配额都已满时返回 null
+         */
+        ExpressionResult next() {
+            if (shard != null) {
+                backwardCandidates++;
+                return backward.generateExpression(shard.next(random));
+            }
+            if (quota == null) {
+                return generator.generateExpression();
+            }
+            answer = quota.next(cursor++);
+            if (answer < 0) {
+                return null;
+            }
+            backwardCandidates++;
+            return backward.generateExpression(quota.answer(answer));
+        }
+
+        /**
+         * @return 通过去重的题目是否计入配额
+         */
+        boolean accept() {
+            return quota == null || quota.accept(answer);
+        }
+
+        void duplicate() {
+            if (quota != null) {
+                quota.duplicate(answer);
+            }
+        }
+    }
+
+    private void collectStatistics(Source source) {
+        ExpressionGenerator generator = source.generator;
+        // 倒推生成的题目都满足规则，没有丢弃和重试
+        candidates.add(generator.getCandidates() + source.backwardCandidates);
+        rejected.add(generator.getRejected());
+        retries.add(generator.getRetries());
+    }
+
+    /**
+     * @return 最近一次生成的统计：生成的表达式数，以及平均每道题因结果无效丢弃的表达式数和重新生成的次数
+     */
+    public String statistics() {
+        long problems = Math.max(1, generated);
+        return String.format("Generator: %d candidates for %d problems, %d rejected (%.4f per problem), %d retries (%.4f per problem)",
+                candidates.sum(), generated, rejected.sum(), (double) rejected.sum() / problems,
+                retries.sum(), (double) retries.sum() / problems);
+    }
+
+    /**
+     * 开启校验时重新计算标准化后的题目，与生成时得到的答案不一致说明生成或标准化有误
+     * @throws IllegalStateException 答案不一致
+     */
+    private void verify(String expression, Fraction result) {
+        if (verify && !ExpressionEvaluator.evaluate(expression).equals(result)) {
+            throw new IllegalStateException("Answer mismatch: " + expression + " = " + result);
+        }
+    }
+
+    /**
+     * 工作线程异常退出时抛出，避免调用线程一直等待队列
+     */
+    private static void checkWorkers(List<Future<?>> futures) throws InterruptedException {
+        for (Future<?> future : futures) {
+            if (future.isDone()) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Generation failed", e.getCause());
+                }
+            }
+        }
+    }
+}
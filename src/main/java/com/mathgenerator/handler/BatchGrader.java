@@ -0,0 +1,279 @@
+package com.mathgenerator.handler;
+
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.service.CompiledExpression;
+import com.mathgenerator.util.IntLongHashMap;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * @date: 2025/04/01
+ * @description: 批量批改
+ * 同一份题目文件只解析和计算一次，标准答案保存在按行号排列的 long 数组中，
+ * 多份答案文件在 ForkJoinPool 中并行批改，每份答案写出一个成绩文件，最后写出汇总。
+ * 每份答案的批改规则与单独批改（按行号或按题号）完全相同。
+ */
+public class BatchGrader {
+    /**
+     * 汇总文件名
+     */
+    public static final String SUMMARY_FILE = "Summary.txt";
+    /**
+     * 成绩文件名前缀，成绩文件名为前缀加答案文件名
+     */
+    public static final String GRADE_PREFIX = "Grade_";
+
+    private static final int NO_INDEX = -1;
+
+    private final int[] indices;        // 行号 -> 题号，没有题号的行为 NO_INDEX
+    private final long[] expected;      // 行号 -> 打包的标准答案
+    private final Map<Integer, Fraction> wide = new HashMap<>();  // 超出 int 范围的标准答案
+
+    /**
+     * 解析题目文件并计算全部标准答案
+     * @param exerciseFile 练习题文件
+     * @throws IOException 读取文件失败
+     */
+    public BatchGrader(String exerciseFile) throws IOException {
+        ByteBuffer exercises = MappedGrader.map(Paths.get(exerciseFile));
+        int end = exercises.limit();
+        int capacity = Math.max(16, end / 16);
+        int[] lineIndices = new int[capacity];
+        long[] answers = new long[capacity];
+        int lines = 0;
+        for (int pos = 0; pos < end; lines++) {
+            int lineEnd = MappedGrader.lineEnd(exercises, pos, end);
+            if (lines == lineIndices.length) {
+                lineIndices = Arrays.copyOf(lineIndices, lines * 2);
+                answers = Arrays.copyOf(answers, lines * 2);
+            }
+            lineIndices[lines] = MappedGrader.hasIndex(exercises, pos, lineEnd) ? parseIndex(exercises, pos, lineEnd) : NO_INDEX;
+            answers[lines] = evaluate(exercises, pos, lineEnd, lines);
+            pos = MappedGrader.nextLine(exercises, lineEnd, end);
+        }
+        this.indices = Arrays.copyOf(lineIndices, lines);
+        this.expected = Arrays.copyOf(answers, lines);
+    }
+
+    private static int parseIndex(ByteBuffer exercises, int start, int end) {
+        try {
+            return MappedGrader.parseIndex(exercises, start, end);
+        } catch (NumberFormatException e) {
+            // 题号超出 int 范围
+            return NO_INDEX;
+        }
+    }
+
+    /**
+     * @return 打包的标准答案，超出 int 范围时为 WIDE，表达式无效时为 0（不是合法的打包分数，任何答案都不相等）
+     */
+    private long evaluate(ByteBuffer exercises, int start, int end, int line) {
+        try {
+            CompiledExpression expression = MappedGrader.compileExercise(exercises, start, end);
+            if (expression == null) {
+                return 0L;
+            }
+            try {
+                return expression.evaluatePacked();
+            } catch (ArithmeticException e) {
+                wide.put(line, expression.evaluate());
+                return MappedGrader.WIDE;
+            }
+        } catch (Exception e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * @return 题目文件的行数
+     */
+    public int size() {
+        return expected.length;
+    }
+
+    /**
+     * 并行批改多份答案，每份答案写出"Grade_答案文件名"，最后写出汇总文件。
+     * 成绩文件只按文件名命名，不同目录中的同名答案会写到同一个成绩文件，因此批改前先检查文件名不重复
+     * @param answerFiles 答案文件
+     * @param gradeDir 成绩文件所在的目录，不存在时创建
+     * @param threads 线程数
+     * @param ranges 报告中是否把连续的题号合并为区间
+     * @param byIndex 是否按题号而不是行号对应题目和答案
+     * @return 每份答案的批改结果，批改失败的为 null
+     * @throws IOException 写汇总文件失败
+     * @throws IllegalArgumentException 有两份答案的文件名相同
+     */
+    public List<GradeReport> gradeAll(List<String> answerFiles, String gradeDir, int threads,
+                                      boolean ranges, boolean byIndex) throws IOException {
+        Map<String, String> names = new HashMap<>();
+        for (String answerFile : answerFiles) {
+            String previous = names.put(Paths.get(answerFile).getFileName().toString(), answerFile);
+            if (previous != null) {
+                throw new IllegalArgumentException("Answer files " + previous + " and " + answerFile
+                        + " would both be graded to " + GRADE_PREFIX + Paths.get(answerFile).getFileName());
+            }
+        }
+        Path dir = Paths.get(gradeDir);
+        Files.createDirectories(dir);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        List<GradeReport> reports = new ArrayList<>(answerFiles.size());
+        List<String> errors = new ArrayList<>(answerFiles.size());
+        try {
+            List<ForkJoinTask<GradeReport>> tasks = new ArrayList<>(answerFiles.size());
+            for (String answerFile : answerFiles) {
+                Path gradeFile = dir.resolve(GRADE_PREFIX + Paths.get(answerFile).getFileName());
+                tasks.add(pool.submit(() -> {
+                    GradeReport report = grade(answerFile, byIndex);
+                    try (BufferedWriter writer = newWriter(gradeFile)) {
+                        report.writeTo(writer, ranges);
+                    }
+                    return report;
+                }));
+            }
+            for (ForkJoinTask<GradeReport> task : tasks) {
+                try {
+                    reports.add(task.join());
+                    errors.add(null);
+                } catch (RuntimeException e) {
+                    // 某份答案批改失败不影响其他答案
+                    reports.add(null);
+                    errors.add(String.valueOf(e.getCause() != null ? e.getCause().getMessage() : e.getMessage()));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        try (BufferedWriter writer = newWriter(dir.resolve(SUMMARY_FILE))) {
+            long correct = 0, wrong = 0, missing = 0;
+            for (int i = 0; i < answerFiles.size(); i++) {
+                GradeReport report = reports.get(i);
+                writer.write(answerFiles.get(i));
+                if (report == null) {
+                    writer.write(": Error " + errors.get(i) + "\n");
+                    continue;
+                }
+                writer.write(": Correct " + report.getCorrectCount() + ", Wrong " + report.getWrongCount());
+                if (byIndex) {
+                    writer.write(", Missing " + report.getMissingCount());
+                }
+                writer.write("\n");
+                correct += report.getCorrectCount();
+                wrong += report.getWrongCount();
+                missing += report.getMissingCount();
+            }
+            writer.write("Total: " + answerFiles.size() + " submissions, Correct " + correct + ", Wrong " + wrong);
+            if (byIndex) {
+                writer.write(", Missing " + missing);
+            }
+            writer.write("\n");
+        }
+        return reports;
+    }
+
+    /**
+     * 批改一份答案
+     * @param answerFile 答案文件
+     * @param byIndex 是否按题号对应
+     * @return 批改结果
+     * @throws IOException 读取文件失败
+     * @throws NumberFormatException 按行号批改时题目行中没有题号
+     */
+    public GradeReport grade(String answerFile, boolean byIndex) throws IOException {
+        ByteBuffer answers = MappedGrader.map(Paths.get(answerFile));
+        return byIndex ? gradeByIndex(answers) : gradeByLine(answers);
+    }
+
+    /**
+     * 按行号对应，行数不同时以较短的为准
+     */
+    private GradeReport gradeByLine(ByteBuffer answers) {
+        GradeReport report = new GradeReport();
+        int end = answers.limit();
+        int line = 0;
+        for (int pos = 0; pos < end && line < expected.length; line++) {
+            int lineEnd = MappedGrader.lineEnd(answers, pos, end);
+            if (indices[line] == NO_INDEX) {
+                throw new NumberFormatException("Missing index at line " + (line + 1));
+            }
+            report.add(indices[line], MappedGrader.matches(expected[line], wideAnswer(line), answers, pos, lineEnd));
+            pos = MappedGrader.nextLine(answers, lineEnd, end);
+        }
+        return report;
+    }
+
+    /**
+     * 按题号对应，缺少答案的题目记为 Missing
+     */
+    private GradeReport gradeByIndex(ByteBuffer answers) {
+        GradeReport report = new GradeReport(true);
+        IntLongHashMap answerIndex = MappedGrader.indexLines(answers);
+        for (int line = 0; line < expected.length; line++) {
+            if (indices[line] == NO_INDEX) {
+                continue;
+            }
+            long answerLine = answerIndex.get(indices[line], -1L);
+            if (answerLine < 0) {
+                report.addMissing(indices[line]);
+            } else {
+                report.add(indices[line], MappedGrader.matches(expected[line], wideAnswer(line), answers,
+                        (int) (answerLine >>> 32), (int) answerLine));
+            }
+        }
+        return report;
+    }
+
+    /**
+     * @return 超出 int 范围的标准答案，其他行返回 null，只有这些少数行需要查 Map
+     */
+    private Fraction wideAnswer(int line) {
+        return expected[line] == MappedGrader.WIDE ? wide.get(line) : null;
+    }
+
+    /**
+     * 解析 -batch 参数：目录时取其中全部 .txt 文件（按文件名排序），否则为逗号分隔的文件列表
+     * @param batch 参数值
+     * @return 答案文件列表
+     */
+    public static List<String> listAnswerFiles(String batch) {
+        File dir = new File(batch);
+        List<String> files = new ArrayList<>();
+        if (dir.isDirectory()) {
+            File[] children = dir.listFiles((parent, name) -> name.endsWith(".txt"));
+            if (children != null) {
+                Arrays.sort(children);
+                for (File child : children) {
+                    if (child.isFile()) {
+                        files.add(child.getPath());
+                    }
+                }
+            }
+        } else {
+            for (String file : batch.split(",")) {
+                if (!file.trim().isEmpty()) {
+                    files.add(file.trim());
+                }
+            }
+        }
+        return files;
+    }
+
+    private static BufferedWriter newWriter(Path file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8));
+    }
+}
@@ -23,6 +23,23 @@ import java.io.*;
  */
 public class FileHandler {
 
+    /**
+     * 一次遍历同时写入题目文件和答案文件（使用 UTF-8 编码）
+     * 答案直接使用集合中已有的结果，不再重新计算；需要校验时在生成阶段开启
+     * @param expressions 题目和答案的映射集合
+     * @param exerciseFile 题目文件名
+     * @param answerFile 答案文件名
+     */
+    public static void writeProblems(Map<String, Fraction> expressions, String exerciseFile, String answerFile) {
+        try (ProblemWriter writer = new ProblemWriter(exerciseFile, answerFile)) {
+            for (Map.Entry<String, Fraction> entry : expressions.entrySet()) {
+                writer.write(entry.getKey(), entry.getValue());
+            }
+        } catch (IOException e) {
+            System.err.println("写入题目文件时出错: " + e.getMessage());
+        }
+    }
+
     /**
      * 将生成的题目写入文件（使用 UTF-8 编码）
      * @param expressions 题目集合
@@ -92,14 +109,65 @@ public class FileHandler {
      * @param gradeFile 成绩报告文件
      */
     public static void gradeAnswers(String exerciseFile, String answerFile, String gradeFile) {
+        gradeAnswers(exerciseFile, answerFile, gradeFile, 1, false);
+    }
+
+    /**
+     * 多线程对比答案文件并生成统计结果，输出与单线程相同
+     * @param exerciseFile 练习题文件
+     * @param answerFile 答案文件
+     * @param gradeFile 成绩报告文件
+     * @param threads 线程数
+     * @param ranges 报告中是否把连续的题号合并为区间（如"1-10000"）
+     */
+    public static void gradeAnswers(String exerciseFile, String answerFile, String gradeFile, int threads, boolean ranges) {
+        try {
+            // 文件不超过 2GB 时映射到内存，直接在字节上批改
+            if (MappedGrader.canMap(exerciseFile, answerFile)) {
+                MappedGrader.grade(exerciseFile, answerFile, gradeFile, threads, ranges);
+                return;
+            }
+        } catch (IOException e) {
+            System.err.println("对比答案文件时出错: " + e.getMessage());
+            return;
+        }
+        gradeAnswersByLine(exerciseFile, answerFile, gradeFile, ranges);
+    }
+
+    /**
+     * 按题号而不是行号对比答案，答案行可以乱序或缺失，缺失的题目单独统计为 Missing
+     * @param exerciseFile 练习题文件
+     * @param answerFile 答案文件
+     * @param gradeFile 成绩报告文件
+     * @param threads 线程数
+     * @param ranges 报告中是否把连续的题号合并为区间
+     */
+    public static void gradeAnswersByIndex(String exerciseFile, String answerFile, String gradeFile, int threads, boolean ranges) {
+        try {
+            if (!MappedGrader.canMap(exerciseFile, answerFile)) {
+                System.err.println("按题号对比答案时文件不能超过 2GB");
+                return;
+            }
+            MappedGrader.gradeByIndex(exerciseFile, answerFile, gradeFile, threads, ranges);
+        } catch (IOException e) {
+            System.err.println("对比答案文件时出错: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 逐行读取并对比答案，用于无法整体映射到内存的大文件
+     * @param exerciseFile 练习题文件
+     * @param answerFile 答案文件
+     * @param gradeFile 成绩报告文件
+     * @param ranges 报告中是否把连续的题号合并为区间
+     */
+    public static void gradeAnswersByLine(String exerciseFile, String answerFile, String gradeFile, boolean ranges) {
         try (BufferedReader exerciseReader = new BufferedReader(new InputStreamReader(Files.newInputStream(Paths.get(exerciseFile)), StandardCharsets.UTF_8));
              BufferedReader answerReader = new BufferedReader(new InputStreamReader(Files.newInputStream(Paths.get(answerFile)), StandardCharsets.UTF_8));
              BufferedWriter gradeWriter = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(Paths.get(gradeFile)), StandardCharsets.UTF_8))) {
 
             String exerciseLine, answerLine;
-            int correctCount = 0, wrongCount = 0;
-            StringBuilder correctIndices = new StringBuilder();
-            StringBuilder wrongIndices = new StringBuilder();
+            GradeReport report = new GradeReport();
 
             while ((exerciseLine = exerciseReader.readLine()) != null && (answerLine = answerReader.readLine()) != null) {
                 String indexStr = exerciseLine.split(":")[0].replace("题目", "").replaceAll("[^0-9]", "");
@@ -117,31 +185,14 @@ public class FileHandler {
                     String actualResultStr = answerLine.split(":")[1].trim();
                     Fraction actualResult = new Fraction(actualResultStr);
 
-                    if (expectedResult.equals(actualResult)) {
-                        correctCount++;
-                        correctIndices.append(index).append(", ");
-                    } else {
-                        wrongCount++;
-                        wrongIndices.append(index).append(", ");
-                    }
+                    report.add(index, expectedResult.equals(actualResult));
                 } catch (Exception e) {
-                    wrongCount++;
-                    wrongIndices.append(index).append(", ");
+                    report.add(index, false);
                 }
             }
 
             // 写入统计结果
-            if (correctIndices.length() > 0) {
-                gradeWriter.write("Correct: " + correctCount + " (" + correctIndices.substring(0, correctIndices.length() - 2) + ")\n");
-            } else {
-                gradeWriter.write("Correct: 0\n");
-            }
-            
-            if (wrongIndices.length() > 0) {
-                gradeWriter.write("Wrong: " + wrongCount + " (" + wrongIndices.substring(0, wrongIndices.length() - 2) + ")\n");
-            } else {
-                gradeWriter.write("Wrong: 0\n");
-            }
+            report.writeTo(gradeWriter, ranges);
 
         } catch (IOException e) {
             System.err.println("对比答案文件时出错: " + e.getMessage());
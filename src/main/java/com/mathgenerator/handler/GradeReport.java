@@ -0,0 +1,229 @@
+package com.mathgenerator.handler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * @date: 2025/03/30
+ * @description: 批改结果
+ * 正确和错误的题号分别保存为连续题号组成的区间列表，连续的题号只占一个区间，
+ * 内存只与区间数有关，与题号的大小无关（"题目2000000000" 这样的题号不会分配按题号增长的位图）；
+ * 报告按题号从小到大直接写入输出流，不先拼接成一个大字符串。
+ * 题号可以逐个列出（"Correct: 3 (1, 2, 3)"），也可以把连续的题号合并为区间（"Correct: 3 (1-3)"）。
+ * 按题号批改时，没有对应答案的题目单独记为 Missing。
+ */
+public class GradeReport {
+    private final Ranges correct = new Ranges();
+    private final Ranges wrong = new Ranges();
+    private final Ranges missing = new Ranges();
+    private final boolean reportMissing;
+    private int correctCount;
+    private int wrongCount;
+    private int missingCount;
+
+    /**
+     * 按行号批改的结果，只有 Correct 和 Wrong 两类
+     */
+    public GradeReport() {
+        this(false);
+    }
+
+    /**
+     * @param reportMissing 是否在报告中输出 Missing 一类（按题号批改时使用）
+     */
+    public GradeReport(boolean reportMissing) {
+        this.reportMissing = reportMissing;
+    }
+
+    /**
+     * 记录一道题的批改结果
+     * @param index 题号
+     * @param isCorrect 是否正确
+     */
+    public void add(int index, boolean isCorrect) {
+        if (isCorrect) {
+            correctCount++;
+            correct.add(index);
+        } else {
+            wrongCount++;
+            wrong.add(index);
+        }
+    }
+
+    /**
+     * 记录一道没有对应答案的题目
+     * @param index 题号
+     */
+    public void addMissing(int index) {
+        missingCount++;
+        missing.add(index);
+    }
+
+    /**
+     * 合并另一部分题目的批改结果
+     * @param other 另一部分的结果
+     */
+    public void merge(GradeReport other) {
+        correctCount += other.correctCount;
+        wrongCount += other.wrongCount;
+        missingCount += other.missingCount;
+        correct.addAll(other.correct);
+        wrong.addAll(other.wrong);
+        missing.addAll(other.missing);
+    }
+
+    public int getCorrectCount() {
+        return correctCount;
+    }
+
+    public int getWrongCount() {
+        return wrongCount;
+    }
+
+    public int getMissingCount() {
+        return missingCount;
+    }
+
+    /**
+     * @param index 题号
+     * @return 该题是否被判为正确
+     */
+    public boolean isCorrect(int index) {
+        return correct.contains(index);
+    }
+
+    /**
+     * 写出报告
+     * @param writer 输出
+     * @param ranges 是否把连续的题号合并为"起始-结束"的区间
+     * @throws IOException 写入失败
+     */
+    public void writeTo(Writer writer, boolean ranges) throws IOException {
+        writeLine(writer, "Correct: ", correctCount, correct, ranges);
+        writeLine(writer, "Wrong: ", wrongCount, wrong, ranges);
+        if (reportMissing) {
+            writeLine(writer, "Missing: ", missingCount, missing, ranges);
+        }
+    }
+
+    private static void writeLine(Writer writer, String label, int count, Ranges indices, boolean ranges) throws IOException {
+        writer.write(label);
+        if (indices.isEmpty()) {
+            writer.write("0\n");
+            return;
+        }
+        writer.write(Integer.toString(count));
+        writer.write(" (");
+        indices.normalize();
+        boolean first = true;
+        for (int r = 0; r < indices.size; r++) {
+            int start = Ranges.start(indices.runs[r]);
+            int end = Ranges.end(indices.runs[r]);
+            if (ranges) {
+                if (!first) {
+                    writer.write(", ");
+                }
+                first = false;
+                writer.write(Integer.toString(start));
+                // 连续两个及以上的题号合并为区间
+                if (end > start) {
+                    writer.write('-');
+                    writer.write(Integer.toString(end));
+                }
+                continue;
+            }
+            for (long i = start; i <= end; i++) {
+                if (!first) {
+                    writer.write(", ");
+                }
+                first = false;
+                writer.write(Long.toString(i));
+            }
+        }
+        writer.write(")\n");
+    }
+
+    /**
+     * 题号集合，保存为若干个闭区间 [start, end]，每个区间压缩为一个 long（高 32 位为起点，低 32 位为终点）。
+     * 按题号递增加入时只在末尾延长或追加区间；乱序加入或合并后在写出前排序并合并重叠、相邻的区间。
+     */
+    private static final class Ranges {
+        private long[] runs = new long[8];
+        private int size;
+        private boolean normalized = true;   // 区间是否已按起点排序且互不重叠、互不相邻
+
+        void add(int index) {
+            addRun(index, index);
+        }
+
+        void addAll(Ranges other) {
+            for (int r = 0; r < other.size; r++) {
+                addRun(start(other.runs[r]), end(other.runs[r]));
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean contains(int index) {
+            normalize();
+            // 终点取最大值，查找结果不会命中，插入位置的前一个区间是起点不大于 index 的最后一个区间
+            int r = -Arrays.binarySearch(runs, 0, size, pack(index, -1)) - 2;
+            return r >= 0 && end(runs[r]) >= index;
+        }
+
+        private void addRun(int start, int end) {
+            if (size > 0) {
+                int lastStart = start(runs[size - 1]);
+                int lastEnd = end(runs[size - 1]);
+                if (start >= lastStart && start <= (long) lastEnd + 1) {
+                    runs[size - 1] = pack(lastStart, Math.max(lastEnd, end));
+                    return;
+                }
+                if (start < lastStart) {
+                    normalized = false;
+                }
+            }
+            if (size == runs.length) {
+                runs = Arrays.copyOf(runs, size * 2);
+            }
+            runs[size++] = pack(start, end);
+        }
+
+        /**
+         * 按起点排序，合并重叠或相邻的区间
+         */
+        void normalize() {
+            if (normalized) {
+                return;
+            }
+            Arrays.sort(runs, 0, size);
+            int merged = 0;
+            for (int r = 0; r < size; r++) {
+                int start = start(runs[r]);
+                int end = end(runs[r]);
+                if (merged > 0 && start <= (long) end(runs[merged - 1]) + 1) {
+                    runs[merged - 1] = pack(start(runs[merged - 1]), Math.max(end(runs[merged - 1]), end));
+                } else {
+                    runs[merged++] = pack(start, end);
+                }
+            }
+            size = merged;
+            normalized = true;
+        }
+
+        static long pack(int start, int end) {
+            return (long) start << 32 | (end & 0xFFFFFFFFL);
+        }
+
+        static int start(long run) {
+            return (int) (run >> 32);
+        }
+
+        static int end(long run) {
+            return (int) run;
+        }
+    }
+}
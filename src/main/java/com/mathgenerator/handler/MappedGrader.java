@@ -0,0 +1,526 @@
+package com.mathgenerator.handler;
+
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.model.FractionMath;
+import com.mathgenerator.service.ByteCharSequence;
+import com.mathgenerator.service.CompiledExpression;
+import com.mathgenerator.service.ExpressionLexer;
+import com.mathgenerator.util.IntLongHashMap;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * @date: 2025/03/29
+ * @description: 基于内存映射的批改
+ * 题目文件和答案文件整体映射到内存，行、题号、表达式和答案都直接在 UTF-8 字节上解析，
+ * 不为每一行创建 String，也不使用正则表达式。批改规则与逐行读取的实现完全一致：
+ * 题号取第一个":"之前的全部数字，表达式为第一个与第二个":"之间去掉首尾空白和最后一个字符（"="）的部分，
+ * 答案为答案行第一个与第二个":"之间去掉首尾空白的部分，两个文件按行号一一对应。
+ * 多线程批改时题目文件按行切分为若干块，在 ForkJoinPool 中分别批改后按块的顺序合并，
+ * 结果与单线程批改逐字节相同。
+ */
+public final class MappedGrader {
+    /**
+     * 能够整体映射的最大文件大小
+     */
+    public static final long MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+    /**
+     * 每块的最小字节数，文件较小时不值得切分
+     */
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+    /**
+     * 每个线程分到的块数，块多一些可以平衡各块批改速度的差异
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+    /**
+     * 标准答案超出 int 范围、需要用 Fraction 比较时的占位值（分母为 0，不是合法的打包分数）
+     */
+    static final long WIDE = 1L << 32;
+
+    private MappedGrader() {
+    }
+
+    /**
+     * @param files 文件
+     * @return 全部文件都能整体映射时返回 true
+     * @throws IOException 读取文件大小失败
+     */
+    public static boolean canMap(String... files) throws IOException {
+        for (String file : files) {
+            if (Files.size(Paths.get(file)) > MAX_MAPPED_SIZE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 批改答案并写入成绩文件
+     * @param exerciseFile 练习题文件
+     * @param answerFile 答案文件
+     * @param gradeFile 成绩报告文件
+     * @throws IOException 读写文件失败
+     * @throws NumberFormatException 题目行中没有题号
+     */
+    public static void grade(String exerciseFile, String answerFile, String gradeFile) throws IOException {
+        grade(exerciseFile, answerFile, gradeFile, 1, false);
+    }
+
+    /**
+     * 多线程批改答案并写入成绩文件，结果与单线程批改相同
+     * @param exerciseFile 练习题文件
+     * @param answerFile 答案文件
+     * @param gradeFile 成绩报告文件
+     * @param threads 线程数，为 1 时在当前线程批改
+     * @param ranges 报告中是否把连续的题号合并为区间
+     * @throws IOException 读写文件失败
+     * @throws NumberFormatException 题目行中没有题号
+     */
+    public static void grade(String exerciseFile, String answerFile, String gradeFile, int threads, boolean ranges) throws IOException {
+        ByteBuffer exercises = map(Paths.get(exerciseFile));
+        ByteBuffer answers = map(Paths.get(answerFile));
+        GradeReport grades;
+        if (threads <= 1) {
+            grades = new GradeReport();
+            gradeLines(exercises, 0, exercises.limit(), answers, 0, answers.limit(), grades);
+        } else {
+            grades = gradeParallel(exercises, answers, threads);
+        }
+
+        try (BufferedWriter gradeWriter = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(Paths.get(gradeFile)), StandardCharsets.UTF_8))) {
+            grades.writeTo(gradeWriter, ranges);
+        }
+    }
+
+    /**
+     * 按题号批改：为答案文件建立"题号 -> 行位置"的索引，再按题号逐行批改题目文件，
+     * 答案行的顺序可以与题目不同，也可以缺少部分题目，缺少答案的题目记为 Missing。
+     * 题号重复的答案行只使用第一行，没有题号的行（如空行）被跳过。
+     * @param exerciseFile 练习题文件
+     * @param answerFile 答案文件
+     * @param gradeFile 成绩报告文件
+     * @param threads 线程数，为 1 时在当前线程批改
+     * @param ranges 报告中是否把连续的题号合并为区间
+     * @throws IOException 读写文件失败
+     */
+    public static void gradeByIndex(String exerciseFile, String answerFile, String gradeFile, int threads, boolean ranges) throws IOException {
+        ByteBuffer exercises = map(Paths.get(exerciseFile));
+        ByteBuffer answers = map(Paths.get(answerFile));
+        IntLongHashMap answerIndex = indexLines(answers);
+        GradeReport grades;
+        if (threads <= 1) {
+            grades = new GradeReport(true);
+            gradeIndexedLines(exercises, 0, exercises.limit(), answers, answerIndex, grades);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                int[] chunks = split(exercises, threads);
+                List<ForkJoinTask<GradeReport>> tasks = new ArrayList<>(chunks.length - 1);
+                for (int i = 0; i + 1 < chunks.length; i++) {
+                    int start = chunks[i];
+                    int end = chunks[i + 1];
+                    tasks.add(pool.submit(() -> {
+                        GradeReport chunk = new GradeReport(true);
+                        gradeIndexedLines(exercises, start, end, answers, answerIndex, chunk);
+                        return chunk;
+                    }));
+                }
+                grades = new GradeReport(true);
+                for (ForkJoinTask<GradeReport> task : tasks) {
+                    grades.merge(task.join());
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        try (BufferedWriter gradeWriter = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(Paths.get(gradeFile)), StandardCharsets.UTF_8))) {
+            grades.writeTo(gradeWriter, ranges);
+        }
+    }
+
+    /**
+     * 建立"题号 -> 行起止位置"的索引，起始位置在高 32 位，结束位置在低 32 位
+     */
+    static IntLongHashMap indexLines(ByteBuffer bytes) {
+        int end = bytes.limit();
+        // 每行至少十几个字节，按此预估行数，不足时自动扩容
+        IntLongHashMap index = new IntLongHashMap(end / 16);
+        for (int pos = 0; pos < end; ) {
+            int lineEnd = lineEnd(bytes, pos, end);
+            if (hasIndex(bytes, pos, lineEnd)) {
+                try {
+                    index.putIfAbsent(parseIndex(bytes, pos, lineEnd), (long) pos << 32 | lineEnd);
+                } catch (NumberFormatException e) {
+                    // 题号超出 int 范围，不可能与任何题目对应
+                }
+            }
+            pos = nextLine(bytes, lineEnd, end);
+        }
+        return index;
+    }
+
+    /**
+     * 按题号批改题目文件的指定区间
+     */
+    private static void gradeIndexedLines(ByteBuffer exercises, int pos, int end,
+                                          ByteBuffer answers, IntLongHashMap answerIndex, GradeReport grades) {
+        while (pos < end) {
+            int lineEnd = lineEnd(exercises, pos, end);
+            if (hasIndex(exercises, pos, lineEnd)) {
+                int index = parseIndex(exercises, pos, lineEnd);
+                long answerLine = answerIndex.get(index, -1L);
+                if (answerLine < 0) {
+                    grades.addMissing(index);
+                } else {
+                    grades.add(index, gradeLine(exercises, pos, lineEnd, answers, (int) (answerLine >>> 32), (int) answerLine));
+                }
+            }
+            pos = nextLine(exercises, lineEnd, end);
+        }
+    }
+
+    /**
+     * @return 第一个":"之前是否有数字
+     */
+    static boolean hasIndex(ByteBuffer bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte b = bytes.get(i);
+            if (b == ':') {
+                return false;
+            }
+            if (b >= '0' && b <= '9') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // 映射建立后与通道无关，关闭通道不影响读取
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * 按行切分两个文件并行批改：先并行统计各块的行数，得到每个题目块的起始行号，
+     * 再在答案文件中找到同一行号的位置，各块独立批改后按顺序合并
+     */
+    private static GradeReport gradeParallel(ByteBuffer exercises, ByteBuffer answers, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            int[] exerciseChunks = split(exercises, threads);
+            int[] answerChunks = split(answers, threads);
+            long[] exerciseLines = countLines(pool, exercises, exerciseChunks);
+            long[] answerLines = countLines(pool, answers, answerChunks);
+
+            List<ForkJoinTask<GradeReport>> tasks = new ArrayList<>(exerciseChunks.length - 1);
+            for (int i = 0; i + 1 < exerciseChunks.length; i++) {
+                int start = exerciseChunks[i];
+                int end = exerciseChunks[i + 1];
+                long firstLine = exerciseLines[i];
+                tasks.add(pool.submit(() -> {
+                    GradeReport chunk = new GradeReport();
+                    int answerPos = seekLine(answers, answerChunks, answerLines, firstLine);
+                    gradeLines(exercises, start, end, answers, answerPos, answers.limit(), chunk);
+                    return chunk;
+                }));
+            }
+            GradeReport grades = new GradeReport();
+            for (ForkJoinTask<GradeReport> task : tasks) {
+                grades.merge(task.join());
+            }
+            return grades;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 把文件切分为按行对齐的块
+     * @return 各块的起始位置，最后一项为文件末尾
+     */
+    static int[] split(ByteBuffer bytes, int threads) {
+        int end = bytes.limit();
+        int chunks = Math.max(1, Math.min(threads * CHUNKS_PER_THREAD, end / MIN_CHUNK_SIZE));
+        int[] bounds = new int[chunks + 1];
+        int count = 1;
+        for (int i = 1; i < chunks; i++) {
+            int target = (int) ((long) end * i / chunks);
+            if (target <= bounds[count - 1]) {
+                continue;
+            }
+            // 移到下一行的开头，保证块的边界都是行首
+            int boundary = Math.min(end, nextLine(bytes, lineEnd(bytes, target, end), end));
+            if (boundary > bounds[count - 1] && boundary < end) {
+                bounds[count++] = boundary;
+            }
+        }
+        bounds[count++] = end;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * 并行统计各块的行数
+     * @return 各块第一行的行号（从 0 开始），最后一项为总行数
+     */
+    private static long[] countLines(ForkJoinPool pool, ByteBuffer bytes, int[] bounds) {
+        List<ForkJoinTask<Long>> tasks = new ArrayList<>(bounds.length - 1);
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            int start = bounds[i];
+            int end = bounds[i + 1];
+            tasks.add(pool.submit(() -> {
+                long lines = 0;
+                for (int pos = start; pos < end; pos = nextLine(bytes, lineEnd(bytes, pos, end), end)) {
+                    lines++;
+                }
+                return lines;
+            }));
+        }
+        long[] firstLines = new long[bounds.length];
+        for (int i = 0; i < tasks.size(); i++) {
+            firstLines[i + 1] = firstLines[i] + tasks.get(i).join();
+        }
+        return firstLines;
+    }
+
+    /**
+     * @return 指定行号的起始位置，超出总行数时返回文件末尾
+     */
+    private static int seekLine(ByteBuffer bytes, int[] bounds, long[] firstLines, long line) {
+        int end = bytes.limit();
+        if (line >= firstLines[firstLines.length - 1]) {
+            return end;
+        }
+        // 找到包含该行的块（每块至少有一行，起始行号严格递增），再在块内逐行前进
+        int chunk = Arrays.binarySearch(firstLines, line);
+        if (chunk < 0) {
+            chunk = -chunk - 2;
+        }
+        int pos = bounds[chunk];
+        for (long l = firstLines[chunk]; l < line; l++) {
+            pos = nextLine(bytes, lineEnd(bytes, pos, end), end);
+        }
+        return pos;
+    }
+
+    /**
+     * 逐行批改两个文件的指定区间，行数不同时以较短的为准
+     */
+    static void gradeLines(ByteBuffer exercises, int exercisePos, int exerciseEnd,
+                           ByteBuffer answers, int answerPos, int answerEnd, GradeReport grades) {
+        while (exercisePos < exerciseEnd && answerPos < answerEnd) {
+            int exerciseLineEnd = lineEnd(exercises, exercisePos, exerciseEnd);
+            int answerLineEnd = lineEnd(answers, answerPos, answerEnd);
+            int index = parseIndex(exercises, exercisePos, exerciseLineEnd);
+            grades.add(index, gradeLine(exercises, exercisePos, exerciseLineEnd, answers, answerPos, answerLineEnd));
+            exercisePos = nextLine(exercises, exerciseLineEnd, exerciseEnd);
+            answerPos = nextLine(answers, answerLineEnd, answerEnd);
+        }
+    }
+
+    /**
+     * 批改一行
+     * @return 答案正确返回 true，答案错误或任一行格式错误返回 false
+     */
+    static boolean gradeLine(ByteBuffer exercises, int exerciseStart, int exerciseEnd,
+                             ByteBuffer answers, int answerStart, int answerEnd) {
+        try {
+            CompiledExpression expression = compileExercise(exercises, exerciseStart, exerciseEnd);
+            if (expression == null) {
+                return false;
+            }
+            long expected;
+            Fraction wide = null;
+            try {
+                expected = expression.evaluatePacked();
+            } catch (ArithmeticException e) {
+                // 超出 int 范围，改用 Fraction 比较
+                expected = WIDE;
+                wide = expression.evaluate();
+            }
+            return matches(expected, wide, answers, answerStart, answerEnd);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 编译题目行中的表达式：第一个与第二个":"之间，去掉首尾空白和末尾的"="
+     * @return 编译结果，没有":"或表达式为空时返回 null
+     * @throws IllegalArgumentException 表达式格式错误
+     */
+    static CompiledExpression compileExercise(ByteBuffer exercises, int exerciseStart, int exerciseEnd) {
+        int colon = indexOf(exercises, exerciseStart, exerciseEnd, ':');
+        if (colon < 0) {
+            return null;
+        }
+        int start = colon + 1;
+        int end = trimEnd(exercises, start, fieldEnd(exercises, start, exerciseEnd));
+        start = trimStart(exercises, start, end);
+        if (start == end) {
+            return null;
+        }
+        end = trimEnd(exercises, start, previousChar(exercises, start, end));
+        return CompiledExpression.compile(ExpressionLexer.lex(new ByteCharSequence(exercises, start, end)));
+    }
+
+    /**
+     * 判断答案行是否与标准答案相等
+     * 答案为答案行第一个与第二个":"之间去掉首尾空白的部分
+     * @param expected 打包的标准答案，超出 int 范围时为 {@link #WIDE}
+     * @param wide expected 为 WIDE 时的标准答案
+     * @return 相等返回 true，答案错误或格式错误返回 false
+     */
+    static boolean matches(long expected, Fraction wide, ByteBuffer answers, int answerStart, int answerEnd) {
+        try {
+            int answerColon = indexOf(answers, answerStart, answerEnd, ':');
+            if (answerColon < 0) {
+                return false;
+            }
+            int valueEnd = trimEnd(answers, answerColon + 1, fieldEnd(answers, answerColon + 1, answerEnd));
+            int valueStart = trimStart(answers, answerColon + 1, valueEnd);
+
+            if (isSimpleFraction(answers, valueStart, valueEnd)) {
+                try {
+                    long actual = FractionMath.parse(new ByteCharSequence(answers, valueStart, valueEnd));
+                    if (expected != WIDE) {
+                        return expected == actual;
+                    }
+                } catch (ArithmeticException e) {
+                    // 超出 int 范围，改用 Fraction 比较
+                }
+            }
+            Fraction actual = new Fraction(new ByteCharSequence(answers, valueStart, valueEnd).toString());
+            return (expected == WIDE ? wide : Fraction.valueOf(expected)).equals(actual);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 解析题号：第一个":"之前的全部数字依次拼接
+     * @throws NumberFormatException 没有数字或超出 int 范围
+     */
+    static int parseIndex(ByteBuffer bytes, int start, int end) {
+        long index = 0;
+        boolean hasDigit = false;
+        for (int i = start; i < end; i++) {
+            byte b = bytes.get(i);
+            if (b == ':') {
+                break;
+            }
+            if (b >= '0' && b <= '9') {
+                index = index * 10 + (b - '0');
+                hasDigit = true;
+                if (index > Integer.MAX_VALUE) {
+                    throw new NumberFormatException("Index out of range: " + new ByteCharSequence(bytes, start, end));
+                }
+            }
+        }
+        if (!hasDigit) {
+            throw new NumberFormatException("Missing index: " + new ByteCharSequence(bytes, start, end));
+        }
+        return (int) index;
+    }
+
+    /**
+     * 只含"整数"、"分子/分母"或"整数'分子/分母"且各部分都有数字的答案可以直接按字节解析，
+     * 其余写法（如负数）交给 Fraction 的构造函数，保证与逐行读取的实现结果相同
+     */
+    private static boolean isSimpleFraction(ByteBuffer bytes, int start, int end) {
+        int part = 0;       // 0: 整数部分 1: 分子 2: 分母
+        boolean digits = false;
+        boolean mixed = false;
+        for (int i = start; i < end; i++) {
+            byte b = bytes.get(i);
+            if (b >= '0' && b <= '9') {
+                digits = true;
+            } else if (b == '\'' && part == 0 && digits) {
+                part = 1;
+                mixed = true;
+                digits = false;
+            } else if (b == '/' && part != 2 && digits) {
+                part = 2;
+                digits = false;
+            } else {
+                return false;
+            }
+        }
+        return digits && (!mixed || part == 2);
+    }
+
+    static int lineEnd(ByteBuffer bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte b = bytes.get(i);
+            if (b == '\n' || b == '\r') {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    static int nextLine(ByteBuffer bytes, int lineEnd, int end) {
+        if (lineEnd < end && bytes.get(lineEnd) == '\r' && lineEnd + 1 < end && bytes.get(lineEnd + 1) == '\n') {
+            return lineEnd + 2;
+        }
+        return lineEnd + 1;
+    }
+
+    private static int indexOf(ByteBuffer bytes, int start, int end, char c) {
+        for (int i = start; i < end; i++) {
+            if (bytes.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int fieldEnd(ByteBuffer bytes, int start, int end) {
+        int colon = indexOf(bytes, start, end, ':');
+        return colon < 0 ? end : colon;
+    }
+
+    /**
+     * 与 String.trim 相同，去掉不大于空格的字符；UTF-8 多字节字符的字节都大于 0x7F，不会被去掉
+     */
+    private static int trimStart(ByteBuffer bytes, int start, int end) {
+        while (start < end && (bytes.get(start) & 0xFF) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(ByteBuffer bytes, int start, int end) {
+        while (end > start && (bytes.get(end - 1) & 0xFF) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * @return 去掉最后一个 UTF-8 字符后的结束位置
+     */
+    private static int previousChar(ByteBuffer bytes, int start, int end) {
+        end--;
+        while (end > start && (bytes.get(end) & 0xC0) == 0x80) {
+            end--;
+        }
+        return end;
+    }
+}
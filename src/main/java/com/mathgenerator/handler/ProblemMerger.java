@@ -0,0 +1,135 @@
+package com.mathgenerator.handler;
+
+import com.mathgenerator.model.Fingerprint;
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.service.ExpressionNormalizer;
+import com.mathgenerator.util.LongPairHashSet;
+import com.mathgenerator.util.SpillingLongPairSet;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * @date: 2025/04/07
+ * @description: 合并多组题目和答案文件
+ * 按给出的顺序逐行读取每组文件，题目重新标准化后按 128 位指纹去重，
+ * 第一次出现的题目连同答案写入输出文件并重新编号，格式与 ProblemWriter 相同。
+ * 用于把分片生成的结果合并为一份，分片之间本来就不重复，其他来源的文件也可以合并。
+ * 内存中只保留每道题的指纹；指定内存预算时超出部分写入临时文件。
+ */
+public class ProblemMerger {
+    private final long memoryBudget;    // 保留指纹的内存字节数，为 0 时全部保留在内存中
+
+    private long read;      // 读取的题目数
+    private long written;   // 写出的题目数
+
+    /**
+     * @param memoryBudget 保留指纹的内存字节数，为 0 时全部保留在内存中
+     */
+    public ProblemMerger(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @param inputs       依次为第 1 组的题目文件、答案文件，第 2 组的题目文件、答案文件……
+     * @param exerciseFile 输出的题目文件
+     * @param answerFile   输出的答案文件
+     * @throws IOException 读写文件失败，或某组文件的题目数和答案数不同
+     */
+    public void merge(List<String> inputs, String exerciseFile, String answerFile) throws IOException {
+        checkPairs(inputs);
+        LongPairHashSet inMemory = memoryBudget > 0 ? null : new LongPairHashSet(1024);
+        try (SpillingLongPairSet spilling = memoryBudget > 0 ? new SpillingLongPairSet(memoryBudget, null) : null;
+             ProblemWriter writer = new ProblemWriter(exerciseFile, answerFile)) {
+            read(inputs, (high, low, expression, answer) -> {
+                read++;
+                boolean added = spilling != null ? spilling.add(high, low) : inMemory.add(high, low);
+                if (added) {
+                    writer.write(expression, new Fraction(answer));
+                    written++;
+                }
+            });
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException 输入不是成组的题目文件和答案文件
+     */
+    static void checkPairs(List<String> inputs) {
+        if (inputs.isEmpty() || inputs.size() % 2 != 0) {
+            throw new IllegalArgumentException("Inputs must be exercise/answer file pairs: " + inputs);
+        }
+    }
+
+    /**
+     * 逐组读取题目和答案文件，题目重新标准化并计算指纹后交给 sink
+     * @param inputs 依次为第 1 组的题目文件、答案文件，第 2 组的题目文件、答案文件……
+     * @param sink   接收每道题的指纹、标准化后的题目和答案
+     * @throws IOException 读取文件失败，或某组文件的题目数和答案数不同
+     */
+    static void read(List<String> inputs, ProblemSink sink) throws IOException {
+        ExpressionNormalizer normalizer = new ExpressionNormalizer();
+        Fingerprint fingerprint = new Fingerprint();
+        for (int i = 0; i < inputs.size(); i += 2) {
+            try (BufferedReader exercises = Files.newBufferedReader(Paths.get(inputs.get(i)), StandardCharsets.UTF_8);
+                 BufferedReader answers = Files.newBufferedReader(Paths.get(inputs.get(i + 1)), StandardCharsets.UTF_8)) {
+                String exerciseLine;
+                while ((exerciseLine = exercises.readLine()) != null) {
+                    String answerLine = answers.readLine();
+                    if (answerLine == null) {
+                        throw new IOException("Fewer answers than exercises in " + inputs.get(i + 1));
+                    }
+                    String expression = normalizer.normalizeExpression(expression(exerciseLine));
+                    fingerprint.reset().append(expression);
+                    sink.accept(fingerprint.high(), fingerprint.low(), expression, answer(answerLine));
+                }
+                if (answers.readLine() != null) {
+                    throw new IOException("More answers than exercises in " + inputs.get(i + 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return "题目N: 表达式 =" 中的表达式
+     */
+    static String expression(String line) {
+        String expression = line.substring(line.indexOf(':') + 1).trim();
+        if (expression.endsWith("=")) {
+            expression = expression.substring(0, expression.length() - 1).trim();
+        }
+        return expression;
+    }
+
+    /**
+     * @return "答案N: 答案" 中的答案
+     */
+    static String answer(String line) {
+        return line.substring(line.indexOf(':') + 1).trim();
+    }
+
+    /**
+     * 读取到的一道题
+     */
+    interface ProblemSink {
+        void accept(long high, long low, String expression, String answer) throws IOException;
+    }
+
+    /**
+     * @return 读取的题目数
+     */
+    public long getRead() {
+        return read;
+    }
+
+    /**
+     * @return 写出的题目数
+     */
+    public long getWritten() {
+        return written;
+    }
+}
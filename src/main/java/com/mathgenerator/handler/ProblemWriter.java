@@ -0,0 +1,129 @@
+package com.mathgenerator.handler;
+
+import com.mathgenerator.model.Fraction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @date: 2025/03/28
+ * @description: 题目和答案的流式写入器
+ * 每写入一道题就同时写出题目文件和答案文件中对应的一行，编号从 1 开始，
+ * 格式与 FileHandler.writeExpressions / writeAnswers 相同，不需要先把全部题目保存在内存中。
+ * 两个文件各自使用一个 FileChannel 和一块直接内存缓冲区，行内容在可复用的 StringBuilder 中拼接后
+ * 直接编码为 UTF-8 写入缓冲区，答案使用调用方给出的结果，不再重新计算。
+ */
+public class ProblemWriter implements Closeable {
+    /**
+     * 每个文件的写缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Output exercises;
+    private final Output answers;
+    private final StringBuilder line = new StringBuilder(64);
+    private int index = 1;
+
+    /**
+     * @param exerciseFile 题目文件名
+     * @param answerFile   答案文件名
+     * @throws IOException 文件无法创建
+     */
+    public ProblemWriter(String exerciseFile, String answerFile) throws IOException {
+        this.exercises = new Output(exerciseFile);
+        Output output;
+        try {
+            output = new Output(answerFile);
+        } catch (IOException e) {
+            exercises.close();
+            throw e;
+        }
+        this.answers = output;
+    }
+
+    /**
+     * 写入一道题目及其答案
+     * @param expression 题目
+     * @param result     答案
+     * @throws IOException 写入失败
+     */
+    public void write(String expression, Fraction result) throws IOException {
+        line.setLength(0);
+        line.append("题目").append(index).append(": ").append(expression).append(" =\n");
+        exercises.write(line);
+        line.setLength(0);
+        line.append("答案").append(index).append(": ").append(result).append('\n');
+        answers.write(line);
+        index++;
+    }
+
+    /**
+     * @return 已写入的题目数
+     */
+    public int count() {
+        return index - 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            exercises.close();
+        } finally {
+            answers.close();
+        }
+    }
+
+    /**
+     * 单个输出文件：FileChannel + 直接内存缓冲区
+     */
+    private static final class Output implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+        Output(String fileName) throws IOException {
+            this.channel = FileChannel.open(Paths.get(fileName),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        void write(CharSequence text) throws IOException {
+            CharBuffer chars = CharBuffer.wrap(text);
+            while (true) {
+                CoderResult result = encoder.encode(chars, buffer, true);
+                if (result.isOverflow()) {
+                    flush();
+                } else if (result.isUnderflow()) {
+                    break;
+                } else {
+                    result.throwException();
+                }
+            }
+            encoder.reset();
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
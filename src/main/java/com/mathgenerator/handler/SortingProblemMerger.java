@@ -0,0 +1,326 @@
+package com.mathgenerator.handler;
+
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.util.LongPairs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * @date: 2025/04/08
+ * @description: 外部排序方式合并多组题目和答案文件
+ * 与 ProblemMerger 读取方式相同，题目重新标准化后连同指纹和答案放入内存缓冲区，
+ * 缓冲区达到内存预算时按指纹稳定排序，去掉段内重复后写入临时目录中的一个有序段文件。
+ * 全部读完后按指纹多路归并各段，相同指纹只保留最先读到的一道，写入输出文件并重新编号。
+ * 段数超过 MAX_FAN_IN 时先把相邻的段分组归并，每趟归并同时打开的段数有上限，
+ * 内存占用只取决于内存预算和 MAX_FAN_IN，与输入的题目总数无关。
+ * 输出按指纹排序，不保留输入中的顺序。
+ */
+public class SortingProblemMerger {
+    /**
+     * 未指定内存预算时每个段缓冲的字节数
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+    /**
+     * 每趟归并最多同时打开的段数
+     */
+    private static final int MAX_FAN_IN = 64;
+    /**
+     * 读写段文件的缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * 缓冲区中每道题除字符以外的估计字节数：题目对象和两个字符串对象
+     */
+    private static final long RECORD_OVERHEAD = 96;
+    private static final Comparator<Problem> BY_KEY = (a, b) -> LongPairs.compare(a.high, a.low, b.high, b.low);
+
+    private final long memoryBudget;    // 生成段时缓冲的字节数
+
+    private long read;      // 读取的题目数
+    private long written;   // 写出的题目数
+    private int runs;       // 生成的段数
+    private int passes;     // 归并的趟数，包括写出输出文件的最后一趟
+    private int nextFile;
+
+    /**
+     * @param memoryBudget 生成段时缓冲的字节数，不大于 0 时使用 DEFAULT_MEMORY_BUDGET
+     */
+    public SortingProblemMerger(long memoryBudget) {
+        this.memoryBudget = memoryBudget > 0 ? memoryBudget : DEFAULT_MEMORY_BUDGET;
+    }
+
+    /**
+     * @param inputs       依次为第 1 组的题目文件、答案文件，第 2 组的题目文件、答案文件……
+     * @param exerciseFile 输出的题目文件
+     * @param answerFile   输出的答案文件
+     * @throws IOException 读写文件失败，或某组文件的题目数和答案数不同
+     */
+    public void merge(List<String> inputs, String exerciseFile, String answerFile) throws IOException {
+        ProblemMerger.checkPairs(inputs);
+        Path directory = Files.createTempDirectory("merge-");
+        try {
+            List<Run> pending = sortRuns(inputs, directory);
+            while (pending.size() > MAX_FAN_IN) {
+                List<Run> next = new ArrayList<>();
+                // 相邻的段分为一组，组的顺序与读取顺序一致，最先读到的题目仍然排在前面
+                for (int i = 0; i < pending.size(); i += MAX_FAN_IN) {
+                    List<Run> group = pending.subList(i, Math.min(pending.size(), i + MAX_FAN_IN));
+                    next.add(mergeRuns(group, directory));
+                }
+                pending = next;
+                passes++;
+            }
+            try (ProblemWriter writer = new ProblemWriter(exerciseFile, answerFile)) {
+                mergeRuns(pending, problem -> {
+                    writer.write(problem.expression, new Fraction(problem.answer));
+                    written++;
+                });
+            }
+            passes++;
+        } finally {
+            delete(directory);
+        }
+    }
+
+    /**
+     * 读取全部输入，每当缓冲区达到内存预算就排序写出一个段
+     */
+    private List<Run> sortRuns(List<String> inputs, Path directory) throws IOException {
+        List<Run> sorted = new ArrayList<>();
+        List<Problem> buffer = new ArrayList<>();
+        long[] bytes = new long[1];
+        ProblemMerger.read(inputs, (high, low, expression, answer) -> {
+            read++;
+            buffer.add(new Problem(high, low, expression, answer));
+            bytes[0] += RECORD_OVERHEAD + 2L * (expression.length() + answer.length());
+            if (bytes[0] >= memoryBudget) {
+                sorted.add(spill(buffer, directory));
+                bytes[0] = 0;
+            }
+        });
+        if (!buffer.isEmpty()) {
+            sorted.add(spill(buffer, directory));
+        }
+        return sorted;
+    }
+
+    /**
+     * 缓冲区按指纹稳定排序，相同指纹只写出第一道，然后清空缓冲区
+     */
+    private Run spill(List<Problem> buffer, Path directory) throws IOException {
+        buffer.sort(BY_KEY);
+        Run run = new Run(directory.resolve("run-" + nextFile++ + ".bin"));
+        try (RunOutput output = new RunOutput(run)) {
+            Problem last = null;
+            for (Problem problem : buffer) {
+                if (last == null || BY_KEY.compare(last, problem) != 0) {
+                    output.accept(problem);
+                    last = problem;
+                }
+            }
+        }
+        buffer.clear();
+        runs++;
+        return run;
+    }
+
+    /**
+     * 把一组段归并为一个新段，并删除原来的段
+     */
+    private Run mergeRuns(List<Run> group, Path directory) throws IOException {
+        Run run = new Run(directory.resolve("run-" + nextFile++ + ".bin"));
+        try (RunOutput output = new RunOutput(run)) {
+            mergeRuns(group, output);
+        }
+        for (Run merged : group) {
+            Files.deleteIfExists(merged.file);
+        }
+        return run;
+    }
+
+    /**
+     * 多路归并一组段，相同指纹只输出一次。指纹相同时先取序号小的段，即最先读到的题目
+     */
+    private static void mergeRuns(List<Run> group, Sink sink) throws IOException {
+        PriorityQueue<RunInput> queue = new PriorityQueue<>(Math.max(1, group.size()), (a, b) -> {
+            int c = BY_KEY.compare(a.current, b.current);
+            return c != 0 ? c : Integer.compare(a.order, b.order);
+        });
+        try {
+            for (int i = 0; i < group.size(); i++) {
+                RunInput input = new RunInput(group.get(i), i);
+                if (input.advance()) {
+                    queue.add(input);
+                } else {
+                    input.close();
+                }
+            }
+            Problem last = null;
+            while (!queue.isEmpty()) {
+                RunInput input = queue.poll();
+                Problem problem = input.current;
+                if (last == null || BY_KEY.compare(last, problem) != 0) {
+                    sink.accept(problem);
+                    last = problem;
+                }
+                if (input.advance()) {
+                    queue.add(input);
+                } else {
+                    input.close();
+                }
+            }
+        } finally {
+            for (RunInput input : queue) {
+                input.close();
+            }
+        }
+    }
+
+    /**
+     * 删除临时目录及其中剩余的段文件
+     */
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * @return 读取的题目数
+     */
+    public long getRead() {
+        return read;
+    }
+
+    /**
+     * @return 写出的题目数
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * @return 生成的段数
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * @return 归并的趟数，包括写出输出文件的最后一趟
+     */
+    public int getPasses() {
+        return passes;
+    }
+
+    /**
+     * 接收归并输出的一道题
+     */
+    private interface Sink {
+        void accept(Problem problem) throws IOException;
+    }
+
+    /**
+     * 一道题：指纹、标准化后的题目和答案
+     */
+    private static final class Problem {
+        private final long high;
+        private final long low;
+        private final String expression;
+        private final String answer;
+
+        Problem(long high, long low, String expression, String answer) {
+            this.high = high;
+            this.low = low;
+            this.expression = expression;
+            this.answer = answer;
+        }
+    }
+
+    /**
+     * 一个有序段文件及其中的题目数
+     */
+    private static final class Run {
+        private final Path file;
+        private long count;
+
+        Run(Path file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * 段文件的顺序写入，每道题依次为指纹高 64 位、低 64 位、题目、答案
+     */
+    private static final class RunOutput implements Sink, Closeable {
+        private final Run run;
+        private final DataOutputStream output;
+
+        RunOutput(Run run) throws IOException {
+            this.run = run;
+            this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run.file), BUFFER_SIZE));
+        }
+
+        @Override
+        public void accept(Problem problem) throws IOException {
+            output.writeLong(problem.high);
+            output.writeLong(problem.low);
+            output.writeUTF(problem.expression);
+            output.writeUTF(problem.answer);
+            run.count++;
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+    }
+
+    /**
+     * 段文件的顺序读取，current 为当前的题目
+     */
+    private static final class RunInput implements Closeable {
+        private final DataInputStream input;
+        private final int order;
+        private long remaining;
+        private Problem current;
+
+        RunInput(Run run, int order) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.file), BUFFER_SIZE));
+            this.order = order;
+            this.remaining = run.count;
+        }
+
+        /**
+         * @return 读到下一道题时返回 true，段已读完时返回 false
+         */
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            current = new Problem(input.readLong(), input.readLong(), input.readUTF(), input.readUTF());
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
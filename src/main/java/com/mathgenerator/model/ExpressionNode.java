@@ -0,0 +1,45 @@
+package com.mathgenerator.model;
+
+/**
+ * @date: 2025/03/26
+ * @description: 表达式树节点
+ * 节点携带自身的精确值，生成、校验、标准化和输出都直接使用这棵树，不需要再解析字符串
+ */
+public abstract class ExpressionNode {
+
+    /**
+     * @return 节点的值
+     */
+    public abstract Fraction getValue();
+
+    /**
+     * @return 节点的优先级，数字最高
+     */
+    public abstract int precedence();
+
+    /**
+     * 将节点追加到字符串，只在改变运算顺序时添加括号
+     *
+     * @param builder 输出
+     */
+    public abstract void appendTo(StringBuilder builder);
+
+    /**
+     * 将节点输出的字符累积到指纹中，与 appendTo 输出的文本逐字符一致，但不拼接字符串
+     *
+     * @param fingerprint 指纹
+     */
+    public abstract void hashTo(Fingerprint fingerprint);
+
+    /**
+     * 转化字符串
+     *
+     * @return 转化后的字符串
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        appendTo(builder);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package com.mathgenerator.model;
+
+/**
+ * @date: 2025/04/02
+ * @description: 表达式的 128 位指纹
+ * 对表达式树输出的字符逐个累积两路独立的 64 位哈希，结果只取决于输出的文本：
+ * 文本相同的表达式指纹一定相同，文本不同时两路同时冲突的概率约为 2^-128。
+ * 计算时不需要先拼接字符串，可以对同一个实例 reset 后反复使用。
+ */
+public final class Fingerprint {
+    private static final long SEED_1 = 0xCBF29CE484222325L;
+    private static final long SEED_2 = 0x9E3779B97F4A7C15L;
+
+    private long h1;
+    private long h2;
+    private int length;
+
+    public Fingerprint() {
+        reset();
+    }
+
+    /**
+     * 清空已累积的字符
+     *
+     * @return this
+     */
+    public Fingerprint reset() {
+        h1 = SEED_1;
+        h2 = SEED_2;
+        length = 0;
+        return this;
+    }
+
+    /**
+     * @param c 追加的字符
+     * @return this
+     */
+    public Fingerprint append(char c) {
+        // 第一路为 FNV-1a，第二路为乘加后循环移位，两路互不相关
+        h1 = (h1 ^ c) * 0x100000001B3L;
+        h2 = Long.rotateLeft(h2 + c * 0xC2B2AE3D27D4EB4FL, 31) * 0x9E3779B97F4A7C15L;
+        length++;
+        return this;
+    }
+
+    /**
+     * @param text 追加的文本
+     * @return this
+     */
+    public Fingerprint append(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            append(text.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * @return 指纹的低 64 位，单独使用时即为 64 位指纹
+     */
+    public long low() {
+        return mix(h1 ^ length);
+    }
+
+    /**
+     * @return 指纹的高 64 位
+     */
+    public long high() {
+        return mix(h2 + h1);
+    }
+
+    /**
+     * MurmurHash3 的 fmix64，让每一位都影响结果的全部位
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -5,15 +5,24 @@ package com.mathgenerator.model;
  * * @date 2025/3/11
  */
 
+import java.math.BigInteger;
+
 import static com.mathgenerator.constant.GlobalConstant.*;
 
 /**
  * 分数类
  * 用于表示和处理分数运算
+ * 分子分母都在 int 范围内时用 int 存储、用 long 运算并检测溢出，
+ * 只有结果超出 int 范围时才提升为 BigInteger 表示
  */
-public class Fraction {
+public class Fraction implements Comparable<Fraction> {
+    private static final BigInteger INT_MIN = BigInteger.valueOf(Integer.MIN_VALUE);
+    private static final BigInteger INT_MAX = BigInteger.valueOf(Integer.MAX_VALUE);
+
     private int numerator;    // 分子
     private int denominator;  // 分母
+    private BigInteger bigNumerator;    // 超出 int 范围时的分子，否则为 null
+    private BigInteger bigDenominator;  // 超出 int 范围时的分母，否则为 null
 
     /**
      * 分数构造函数
@@ -34,77 +43,195 @@ public class Fraction {
      * @param fractionStr 分数字符串（如"3/4"或"2'3/8"）
      */
     public Fraction(String fractionStr) {
+        long numerator;
+        long denominator;
         if (fractionStr.contains(APOSTROPHE)) {
             // 处理带分数（如 "2'3/8"）
             String[] parts = fractionStr.split("'");
-            int whole = Integer.parseInt(parts[0]);
+            long whole = Integer.parseInt(parts[0]);
             String[] fractionParts = parts[1].split("/");
-            int numerator = Integer.parseInt(fractionParts[0]);
-            int denominator = Integer.parseInt(fractionParts[1]);
-            this.numerator = whole * denominator + numerator;
-            this.denominator = denominator;
+            denominator = Integer.parseInt(fractionParts[1]);
+            numerator = whole * denominator + Integer.parseInt(fractionParts[0]);
         } else if (fractionStr.contains("/")) {
             // 处理真分数（如 "3/4"）
             String[] parts = fractionStr.split("/");
-            this.numerator = Integer.parseInt(parts[0]);
-            this.denominator = Integer.parseInt(parts[1]);
+            numerator = Integer.parseInt(parts[0]);
+            denominator = Integer.parseInt(parts[1]);
         } else {
             // 处理整数（如 "5"）
-            this.numerator = Integer.parseInt(fractionStr);
-            this.denominator = 1;
+            numerator = Integer.parseInt(fractionStr);
+            denominator = 1;
         }
-        simplify();
+        if (denominator == 0) {
+            throw new IllegalArgumentException("Denominator cannot be zero.");
+        }
+        assign(numerator, denominator);
+    }
+
+    /**
+     * 内部构造函数，由调用方负责赋值
+     */
+    private Fraction() {
     }
 
     /**
      * 简化分数
      */
     private void simplify() {
-        int gcd = gcd(Math.abs(numerator), Math.abs(denominator));
+        assign(numerator, denominator);
+    }
+
+    /**
+     * 约分并保存 long 形式的分子分母，超出 int 范围时提升为 BigInteger
+     */
+    private void assign(long numerator, long denominator) {
+        if (numerator == Long.MIN_VALUE || denominator == Long.MIN_VALUE) {
+            assign(BigInteger.valueOf(numerator), BigInteger.valueOf(denominator));
+            return;
+        }
+        if (denominator < 0) {
+            numerator = -numerator;
+            denominator = -denominator;
+        }
+        long gcd = FractionMath.gcd(Math.abs(numerator), denominator);
         numerator /= gcd;
         denominator /= gcd;
-        if (denominator < 0) {
-            numerator *= -1;
-            denominator *= -1;
+        if (numerator == (int) numerator && denominator == (int) denominator) {
+            this.numerator = (int) numerator;
+            this.denominator = (int) denominator;
+            this.bigNumerator = null;
+            this.bigDenominator = null;
+        } else {
+            this.bigNumerator = BigInteger.valueOf(numerator);
+            this.bigDenominator = BigInteger.valueOf(denominator);
+        }
+    }
+
+    /**
+     * 约分并保存 BigInteger 形式的分子分母，结果回到 int 范围时降级为 int 表示
+     */
+    private void assign(BigInteger numerator, BigInteger denominator) {
+        if (denominator.signum() < 0) {
+            numerator = numerator.negate();
+            denominator = denominator.negate();
+        }
+        BigInteger gcd = numerator.gcd(denominator);
+        if (!gcd.equals(BigInteger.ONE)) {
+            numerator = numerator.divide(gcd);
+            denominator = denominator.divide(gcd);
+        }
+        if (fitsInt(numerator) && fitsInt(denominator)) {
+            this.numerator = numerator.intValue();
+            this.denominator = denominator.intValue();
+            this.bigNumerator = null;
+            this.bigDenominator = null;
+        } else {
+            this.bigNumerator = numerator;
+            this.bigDenominator = denominator;
+        }
+    }
+
+    private static boolean fitsInt(BigInteger value) {
+        return value.compareTo(INT_MIN) >= 0 && value.compareTo(INT_MAX) <= 0;
+    }
+
+    private static Fraction of(long numerator, long denominator) {
+        Fraction fraction = new Fraction();
+        fraction.assign(numerator, denominator);
+        return fraction;
+    }
+
+    private static Fraction of(BigInteger numerator, BigInteger denominator) {
+        Fraction fraction = new Fraction();
+        fraction.assign(numerator, denominator);
+        return fraction;
+    }
+
+    /**
+     * 从打包的 long 构造分数
+     * @param packed {@link FractionMath} 打包的分数
+     * @return 分数对象
+     */
+    public static Fraction valueOf(long packed) {
+        Fraction fraction = new Fraction();
+        fraction.numerator = FractionMath.numerator(packed);
+        fraction.denominator = FractionMath.denominator(packed);
+        return fraction;
+    }
+
+    /**
+     * 转换为 {@link FractionMath} 的打包形式
+     * @return 打包后的分数
+     * @throws ArithmeticException 分子或分母超出 int 范围
+     */
+    public long toPacked() {
+        if (isBig()) {
+            throw new ArithmeticException("Fraction exceeds int range: " + this);
         }
+        return FractionMath.pack(numerator, denominator);
     }
 
     /**
-     * 计算最大公约数
+     * 分子或分母是否超出 int 范围（使用 BigInteger 表示）
      */
-    private int gcd(int a, int b) {
-        return b == 0 ? a : gcd(b, a % b);
+    public boolean isBig() {
+        return bigNumerator != null;
     }
 
     // 分数的加法
     public Fraction add(Fraction other) {
-        int newNumerator = this.numerator * other.denominator + other.numerator * this.denominator;
-        int newDenominator = this.denominator * other.denominator;
-        return new Fraction(newNumerator, newDenominator);
+        if (!isBig() && !other.isBig()) {
+            // 两个 int 的乘积不会超出 long 范围，只有相加可能溢出
+            long a = (long) this.numerator * other.denominator;
+            long b = (long) other.numerator * this.denominator;
+            long sum = a + b;
+            if (((a ^ sum) & (b ^ sum)) >= 0) {
+                return of(sum, (long) this.denominator * other.denominator);
+            }
+        }
+        return of(getBigNumerator().multiply(other.getBigDenominator()).add(other.getBigNumerator().multiply(getBigDenominator())),
+                getBigDenominator().multiply(other.getBigDenominator()));
     }
 
     // 分数的减法
     public Fraction subtract(Fraction other) {
-        int newNumerator = this.numerator * other.denominator - other.numerator * this.denominator;
-        int newDenominator = this.denominator * other.denominator;
-        return new Fraction(newNumerator, newDenominator);
+        if (!isBig() && !other.isBig()) {
+            long a = (long) this.numerator * other.denominator;
+            long b = (long) other.numerator * this.denominator;
+            long difference = a - b;
+            if (((a ^ b) & (a ^ difference)) >= 0) {
+                return of(difference, (long) this.denominator * other.denominator);
+            }
+        }
+        return of(getBigNumerator().multiply(other.getBigDenominator()).subtract(other.getBigNumerator().multiply(getBigDenominator())),
+                getBigDenominator().multiply(other.getBigDenominator()));
     }
 
     // 分数的乘法
     public Fraction multiply(Fraction other) {
-        int newNumerator = this.numerator * other.numerator;
-        int newDenominator = this.denominator * other.denominator;
-        return new Fraction(newNumerator, newDenominator);
+        if (!isBig() && !other.isBig()) {
+            return of((long) this.numerator * other.numerator, (long) this.denominator * other.denominator);
+        }
+        return of(getBigNumerator().multiply(other.getBigNumerator()), getBigDenominator().multiply(other.getBigDenominator()));
     }
 
     // 分数的除法
     public Fraction divide(Fraction other) {
-        if (other.numerator == 0) {
+        if (other.signum() == 0) {
             throw new IllegalArgumentException("Cannot divide by zero.");
         }
-        int newNumerator = this.numerator * other.denominator;
-        int newDenominator = this.denominator * other.numerator;
-        return new Fraction(newNumerator, newDenominator);
+        if (!isBig() && !other.isBig()) {
+            return of((long) this.numerator * other.denominator, (long) this.denominator * other.numerator);
+        }
+        return of(getBigNumerator().multiply(other.getBigDenominator()), getBigDenominator().multiply(other.getBigNumerator()));
+    }
+
+    /**
+     * 分数的符号
+     * @return 负数返回 -1，零返回 0，正数返回 1
+     */
+    public int signum() {
+        return isBig() ? bigNumerator.signum() : Integer.signum(numerator);
     }
 
     // 重写 equals 方法，用于比较两个分数是否相等
@@ -113,12 +240,34 @@ public class Fraction {
         if (this == obj) {return true;}
         if (obj == null || getClass() != obj.getClass()) {return false;}
         Fraction other = (Fraction) obj;
+        if (isBig() || other.isBig()) {
+            return getBigNumerator().equals(other.getBigNumerator()) && getBigDenominator().equals(other.getBigDenominator());
+        }
         return this.numerator == other.numerator && this.denominator == other.denominator;
     }
 
+    // 重写 hashCode 方法，与 equals 保持一致，int 与 BigInteger 两种表示互不重叠
+    @Override
+    public int hashCode() {
+        if (isBig()) {
+            return 31 * bigNumerator.hashCode() + bigDenominator.hashCode();
+        }
+        return 31 * numerator + denominator;
+    }
+
     // 重写 toString 方法，将分数转换为字符串
     @Override
     public String toString() {
+        if (isBig()) {
+            if (bigDenominator.equals(BigInteger.ONE)) {
+                return bigNumerator.toString();
+            } else if (bigNumerator.abs().compareTo(bigDenominator) > 0) {
+                BigInteger[] parts = bigNumerator.divideAndRemainder(bigDenominator);
+                return parts[0] + "'" + parts[1].abs() + "/" + bigDenominator;
+            } else {
+                return bigNumerator + "/" + bigDenominator;
+            }
+        }
         if (denominator == 1) {
             return Integer.toString(numerator);
         } else if (Math.abs(numerator) > denominator) {
@@ -130,19 +279,45 @@ public class Fraction {
         }
     }
 
+    @Override
     public int compareTo(Fraction other) {
-        // 转换为相同分母进行比较
-        int commonDenominator = this.denominator * other.denominator;
-        int thisNumerator = this.numerator * other.denominator;
-        int otherNumerator = other.numerator * this.denominator;
-        return Integer.compare(thisNumerator, otherNumerator);
+        if (isBig() || other.isBig()) {
+            return getBigNumerator().multiply(other.getBigDenominator())
+                    .compareTo(other.getBigNumerator().multiply(getBigDenominator()));
+        }
+        // 转换为相同分母进行比较，两个 int 的乘积不会超出 long 范围
+        long thisNumerator = (long) this.numerator * other.denominator;
+        long otherNumerator = (long) other.numerator * this.denominator;
+        return Long.compare(thisNumerator, otherNumerator);
     }
 
+    /**
+     * 获取分子
+     * @throws ArithmeticException 分子或分母超出 int 范围时
+     */
     public int getNumerator() {
+        if (isBig()) {
+            throw new ArithmeticException("Fraction exceeds int range: " + this);
+        }
         return numerator;
     }
 
+    /**
+     * 获取分母
+     * @throws ArithmeticException 分子或分母超出 int 范围时
+     */
     public int getDenominator() {
+        if (isBig()) {
+            throw new ArithmeticException("Fraction exceeds int range: " + this);
+        }
         return denominator;
     }
-}
\ No newline at end of file
+
+    public BigInteger getBigNumerator() {
+        return isBig() ? bigNumerator : BigInteger.valueOf(numerator);
+    }
+
+    public BigInteger getBigDenominator() {
+        return isBig() ? bigDenominator : BigInteger.valueOf(denominator);
+    }
+}
@@ -0,0 +1,186 @@
+package com.mathgenerator.model;
+
+/**
+ * @date: 2025/03/20
+ * @description: 基本类型分数运算内核
+ * 将分数打包进一个 long（高 32 位为分子，低 32 位为分母），
+ * 运算过程不创建任何对象，供生成器和计算器的热点路径使用。
+ * 打包后的分数总是最简形式，且分母恒为正数。
+ */
+public final class FractionMath {
+    /**
+     * 数值 0
+     */
+    public static final long ZERO = pack(0, 1);
+
+    private static final long DENOMINATOR_MASK = 0xFFFFFFFFL;
+
+    private FractionMath() {
+    }
+
+    /**
+     * 打包一个已经是最简形式的分数
+     * @param numerator 分子
+     * @param denominator 分母（必须为正数）
+     * @return 打包后的分数
+     */
+    public static long pack(int numerator, int denominator) {
+        return ((long) numerator << 32) | (denominator & DENOMINATOR_MASK);
+    }
+
+    /**
+     * 约分并打包任意分数
+     * @param numerator 分子
+     * @param denominator 分母
+     * @return 打包后的分数
+     * @throws ArithmeticException 约分后的分子或分母超出 int 范围
+     */
+    public static long of(long numerator, long denominator) {
+        if (denominator == 0) {
+            throw new IllegalArgumentException("Denominator cannot be zero.");
+        }
+        if (denominator < 0) {
+            numerator = -numerator;
+            denominator = -denominator;
+        }
+        long gcd = gcd(Math.abs(numerator), denominator);
+        numerator /= gcd;
+        denominator /= gcd;
+        if (numerator != (int) numerator || denominator != (int) denominator) {
+            throw new ArithmeticException("Fraction overflow: " + numerator + "/" + denominator);
+        }
+        return pack((int) numerator, (int) denominator);
+    }
+
+    /**
+     * 取分子
+     */
+    public static int numerator(long fraction) {
+        return (int) (fraction >> 32);
+    }
+
+    /**
+     * 取分母
+     */
+    public static int denominator(long fraction) {
+        return (int) fraction;
+    }
+
+    // 分数的加法
+    public static long add(long a, long b) {
+        long da = denominator(a);
+        long db = denominator(b);
+        if (da == db) {
+            return of((long) numerator(a) + numerator(b), da);
+        }
+        return of(numerator(a) * db + numerator(b) * da, da * db);
+    }
+
+    // 分数的减法
+    public static long subtract(long a, long b) {
+        long da = denominator(a);
+        long db = denominator(b);
+        if (da == db) {
+            return of((long) numerator(a) - numerator(b), da);
+        }
+        return of(numerator(a) * db - numerator(b) * da, da * db);
+    }
+
+    // 分数的乘法
+    public static long multiply(long a, long b) {
+        return of((long) numerator(a) * numerator(b), (long) denominator(a) * denominator(b));
+    }
+
+    // 分数的除法
+    public static long divide(long a, long b) {
+        if (numerator(b) == 0) {
+            throw new IllegalArgumentException("Cannot divide by zero.");
+        }
+        return of((long) numerator(a) * denominator(b), (long) denominator(a) * numerator(b));
+    }
+
+    /**
+     * 比较两个分数的大小，交叉相乘的结果在 long 范围内不会溢出
+     */
+    public static int compare(long a, long b) {
+        return Long.compare((long) numerator(a) * denominator(b), (long) numerator(b) * denominator(a));
+    }
+
+    /**
+     * 二进制（Stein）算法求最大公约数，迭代实现，参数必须非负
+     * @return 最大公约数，两个参数都为 0 时返回 1
+     */
+    public static long gcd(long a, long b) {
+        if (a == 0) {
+            return b == 0 ? 1 : b;
+        }
+        if (b == 0) {
+            return a;
+        }
+        int shift = Long.numberOfTrailingZeros(a | b);
+        a >>= Long.numberOfTrailingZeros(a);
+        do {
+            b >>= Long.numberOfTrailingZeros(b);
+            if (a > b) {
+                long temp = a;
+                a = b;
+                b = temp;
+            }
+            b -= a;
+        } while (b != 0);
+        return a << shift;
+    }
+
+    /**
+     * 解析分数字符串（如"5"、"3/4"或"2'3/8"），不创建中间对象
+     * @param s 分数字符串
+     * @return 打包后的分数
+     */
+    public static long parse(CharSequence s) {
+        return parse(s, 0, s.length());
+    }
+
+    /**
+     * 解析字符序列中 [start, end) 区间的分数
+     */
+    public static long parse(CharSequence s, int start, int end) {
+        long whole = 0;
+        long numerator = 0;
+        long denominator = 0;
+        int part = 0; // 0: 整数部分 1: 分子 2: 分母
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                if (part == 2) {
+                    denominator = denominator * 10 + digit;
+                } else if (part == 1) {
+                    numerator = numerator * 10 + digit;
+                } else {
+                    whole = whole * 10 + digit;
+                }
+            } else if (c == '\'' && part == 0) {
+                part = 1;
+            } else if (c == '/' && part != 2) {
+                if (part == 0) {
+                    // 没有整数部分的真分数，已读入的数字实际是分子
+                    numerator = whole;
+                    whole = 0;
+                }
+                part = 2;
+            } else {
+                throw new NumberFormatException("Invalid fraction: " + s.subSequence(start, end));
+            }
+            if (whole > Integer.MAX_VALUE || numerator > Integer.MAX_VALUE || denominator > Integer.MAX_VALUE) {
+                throw new NumberFormatException("Fraction out of range: " + s.subSequence(start, end));
+            }
+        }
+        if (part == 0) {
+            return of(whole, 1);
+        }
+        if (part == 1) {
+            throw new NumberFormatException("Invalid fraction: " + s.subSequence(start, end));
+        }
+        return of(whole * denominator + numerator, denominator);
+    }
+}
@@ -0,0 +1,65 @@
+package com.mathgenerator.model;
+
+/**
+ * @date: 2025/03/26
+ * @description: 数字节点，保留题目中原有的写法（如"2/4"）
+ */
+public final class NumberNode extends ExpressionNode {
+    /**
+     * 数字节点的优先级
+     */
+    public static final int PRECEDENCE = 3;
+
+    private final String text;
+    private final long packed;
+    private Fraction value;
+
+    public NumberNode(Operand operand) {
+        this.text = operand.getText();
+        this.packed = operand.getPacked();
+        this.value = operand.getValue();
+    }
+
+    /**
+     * @param text   数字的文本
+     * @param packed 数字的值（FractionMath 打包形式）
+     */
+    public NumberNode(String text, long packed) {
+        this.text = text;
+        this.packed = packed;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return 打包形式的值
+     */
+    public long getPacked() {
+        return packed;
+    }
+
+    @Override
+    public Fraction getValue() {
+        if (value == null) {
+            value = Fraction.valueOf(packed);
+        }
+        return value;
+    }
+
+    @Override
+    public int precedence() {
+        return PRECEDENCE;
+    }
+
+    @Override
+    public void appendTo(StringBuilder builder) {
+        builder.append(text);
+    }
+
+    @Override
+    public void hashTo(Fingerprint fingerprint) {
+        fingerprint.append(text);
+    }
+}
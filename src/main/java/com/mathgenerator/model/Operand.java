@@ -0,0 +1,42 @@
+package com.mathgenerator.model;
+
+/**
+ * @date: 2025/03/22
+ * @description: 操作数
+ * 生成器使用的不可变操作数，同时保存题目中显示的文本和预先计算好的值，
+ * 同一取值范围内的操作数由 OperandTable 统一创建并共享
+ */
+public final class Operand {
+    private final int index;        // 在操作数表中的下标
+    private final String text;      // 题目中显示的文本（如"2/4"或"1'1/2"）
+    private final Fraction value;   // 文本对应的值
+    private final long packed;      // 值的 FractionMath 打包形式
+
+    public Operand(int index, String text, Fraction value) {
+        this.index = index;
+        this.text = text;
+        this.value = value;
+        this.packed = value.toPacked();
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Fraction getValue() {
+        return value;
+    }
+
+    public long getPacked() {
+        return packed;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,129 @@
+package com.mathgenerator.model;
+
+/**
+ * @date: 2025/03/26
+ * @description: 运算符节点，值在第一次使用时由左右子树计算并缓存
+ */
+public final class OperatorNode extends ExpressionNode {
+    private final char operator;
+    private ExpressionNode left;
+    private ExpressionNode right;
+    private Fraction value;
+
+    public OperatorNode(char operator, ExpressionNode left, ExpressionNode right) {
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    public char getOperator() {
+        return operator;
+    }
+
+    public ExpressionNode getLeft() {
+        return left;
+    }
+
+    public ExpressionNode getRight() {
+        return right;
+    }
+
+    /**
+     * 重新设置左右子树，用于标准化时按交换律和结合律重排 + 和 × 的运算链。
+     * 链中间节点的值可能改变，缓存的值被清除，下次使用时重新计算。
+     *
+     * @param left  左子树
+     * @param right 右子树
+     */
+    public void setChildren(ExpressionNode left, ExpressionNode right) {
+        this.left = left;
+        this.right = right;
+        this.value = null;
+    }
+
+    /**
+     * @return 节点的值
+     * @throws IllegalArgumentException 除数为 0
+     */
+    @Override
+    public Fraction getValue() {
+        if (value == null) {
+            Fraction a = left.getValue();
+            Fraction b = right.getValue();
+            switch (operator) {
+                case '+':
+                    value = a.add(b);
+                    break;
+                case '-':
+                    value = a.subtract(b);
+                    break;
+                case '×':
+                    value = a.multiply(b);
+                    break;
+                case '÷':
+                    value = a.divide(b);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown operator: " + operator);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public int precedence() {
+        return precedence(operator);
+    }
+
+    /**
+     * @param operator 运算符
+     * @return 运算符优先级
+     */
+    public static int precedence(char operator) {
+        return operator == '+' || operator == '-' ? 1 : 2;
+    }
+
+    @Override
+    public void appendTo(StringBuilder builder) {
+        appendChild(left, false, builder);
+        builder.append(' ').append(operator).append(' ');
+        appendChild(right, true, builder);
+    }
+
+    @Override
+    public void hashTo(Fingerprint fingerprint) {
+        hashChild(left, false, fingerprint);
+        fingerprint.append(' ').append(operator).append(' ');
+        hashChild(right, true, fingerprint);
+    }
+
+    private void appendChild(ExpressionNode child, boolean isRight, StringBuilder builder) {
+        if (needParentheses(child, isRight)) {
+            builder.append('(');
+            child.appendTo(builder);
+            builder.append(')');
+        } else {
+            child.appendTo(builder);
+        }
+    }
+
+    private void hashChild(ExpressionNode child, boolean isRight, Fingerprint fingerprint) {
+        if (needParentheses(child, isRight)) {
+            fingerprint.append('(');
+            child.hashTo(fingerprint);
+            fingerprint.append(')');
+        } else {
+            child.hashTo(fingerprint);
+        }
+    }
+
+    /**
+     * 子树优先级较低，或作为右操作数且优先级相同时，需要括号保持原有的运算顺序。
+     * 同级运算从左到右结合，右侧同级的子树不加括号时重新解析会得到另一棵树，
+     * 例如 3 × (2 ÷ 1/2) 写成 3 × 2 ÷ 1/2 后解析为 (3 × 2) ÷ 1/2，标准化结果也不同，
+     * 因此 + 和 × 的右侧同级子树同样加括号，输出的文本重新解析后得到原来的树。
+     */
+    private boolean needParentheses(ExpressionNode child, boolean isRight) {
+        return child.precedence() < precedence() || (isRight && child.precedence() == precedence());
+    }
+}
@@ -0,0 +1,50 @@
+package com.mathgenerator.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @date: 2025/03/29
+ * @description: UTF-8 字节的字符序列视图
+ * charAt 按字节返回（0-255），下标即字节偏移，ASCII 部分（数字、运算符、括号）与原文一致，
+ * 可直接交给 FractionMath.parse 和 ExpressionLexer 使用而不用先解码为 String；
+ * toString 才按 UTF-8 解码，只在需要原文时（如错误信息）调用。
+ */
+public final class ByteCharSequence implements CharSequence {
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+
+    /**
+     * @param bytes 字节缓冲区，按绝对位置读取，不改变它的 position
+     * @param start 起始位置
+     * @param end   结束位置（不含）
+     */
+    public ByteCharSequence(ByteBuffer bytes, int start, int end) {
+        this.bytes = bytes;
+        this.offset = start;
+        this.length = end - start;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes.get(offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new ByteCharSequence(bytes, offset + start, offset + end);
+    }
+
+    @Override
+    public String toString() {
+        ByteBuffer slice = bytes.duplicate();
+        slice.limit(offset + length).position(offset);
+        return StandardCharsets.UTF_8.decode(slice).toString();
+    }
+}
@@ -0,0 +1,174 @@
+package com.mathgenerator.service;
+
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.model.FractionMath;
+
+import java.util.Arrays;
+
+/**
+ * @date: 2025/03/24
+ * @description: 编译后的表达式
+ * 表达式经 ExpressionLexer 扫描一遍后编译为逆波兰形式的 long 数组：
+ * 操作数保存为 FractionMath 打包的分数（分母不为 0），
+ * 运算符保存为分母位为 0 的运算码。编译结果不可变，可以缓存并反复计算，
+ * 计算时使用基本类型的数组作为栈，不创建中间对象。
+ */
+public final class CompiledExpression {
+    static final long ADD = (long) TokenStream.PLUS << 32;
+    static final long SUBTRACT = (long) TokenStream.MINUS << 32;
+    static final long MULTIPLY = (long) TokenStream.MULTIPLY << 32;
+    static final long DIVIDE = (long) TokenStream.DIVIDE << 32;
+
+    private final long[] program;   // 逆波兰形式的指令
+    private final int maxDepth;     // 计算时栈的最大深度
+
+    CompiledExpression(long[] program, int maxDepth) {
+        this.program = program;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * 编译表达式
+     * @param expression 中缀表达式，空白和其他无关字符（如末尾的"="）会被忽略
+     * @return 编译结果
+     * @throws IllegalArgumentException 表达式格式错误
+     */
+    public static CompiledExpression compile(CharSequence expression) {
+        return compile(ExpressionLexer.lex(expression));
+    }
+
+    /**
+     * 编译已分词的表达式
+     * @param tokens token 流
+     * @return 编译结果
+     * @throws IllegalArgumentException 表达式格式错误
+     */
+    public static CompiledExpression compile(TokenStream tokens) {
+        int size = tokens.size();
+        long[] output = new long[Math.max(1, size)];
+        int outputSize = 0;
+        int[] operators = new int[Math.max(1, size)];
+        int operatorSize = 0;
+        int depth = 0;
+        int maxDepth = 0;
+
+        for (int i = 0; i < size; i++) {
+            int kind = tokens.kind(i);
+            if (kind == TokenStream.NUMBER) {
+                output[outputSize++] = tokens.value(i);
+                maxDepth = Math.max(maxDepth, ++depth);
+            } else if (kind == TokenStream.LEFT_BRACKET) {
+                operators[operatorSize++] = kind;
+            } else if (kind == TokenStream.RIGHT_BRACKET) {
+                while (operatorSize > 0 && operators[operatorSize - 1] != TokenStream.LEFT_BRACKET) {
+                    output[outputSize++] = opcode(operators[--operatorSize]);
+                    depth = reduce(depth, tokens);
+                }
+                if (operatorSize == 0) {
+                    throw new IllegalArgumentException("Unbalanced parentheses: " + tokens.source());
+                }
+                operatorSize--;
+            } else {
+                while (operatorSize > 0 && TokenStream.precedence(operators[operatorSize - 1]) >= TokenStream.precedence(kind)) {
+                    output[outputSize++] = opcode(operators[--operatorSize]);
+                    depth = reduce(depth, tokens);
+                }
+                operators[operatorSize++] = kind;
+            }
+        }
+        while (operatorSize > 0) {
+            int operator = operators[--operatorSize];
+            if (operator == TokenStream.LEFT_BRACKET) {
+                throw new IllegalArgumentException("Unbalanced parentheses: " + tokens.source());
+            }
+            output[outputSize++] = opcode(operator);
+            depth = reduce(depth, tokens);
+        }
+        if (depth != 1) {
+            throw new IllegalArgumentException("Invalid expression: " + tokens.source());
+        }
+        return new CompiledExpression(Arrays.copyOf(output, outputSize), maxDepth);
+    }
+
+    /**
+     * 计算表达式的值
+     * @return 计算结果（分数形式）
+     */
+    public Fraction evaluate() {
+        try {
+            return Fraction.valueOf(evaluatePacked());
+        } catch (ArithmeticException e) {
+            // 中间结果超出 int 范围，改用可提升为 BigInteger 的 Fraction 重新计算
+            return evaluateWide();
+        }
+    }
+
+    /**
+     * 使用打包的分数计算表达式的值
+     * @return 打包形式的计算结果
+     * @throws ArithmeticException 中间结果超出 int 范围
+     */
+    public long evaluatePacked() {
+        long[] stack = new long[maxDepth];
+        int size = 0;
+        for (long instruction : program) {
+            if (FractionMath.denominator(instruction) != 0) {
+                stack[size++] = instruction;
+                continue;
+            }
+            long b = stack[--size];
+            long a = stack[size - 1];
+            stack[size - 1] = apply(instruction, a, b);
+        }
+        return stack[0];
+    }
+
+    private Fraction evaluateWide() {
+        Fraction[] stack = new Fraction[maxDepth];
+        int size = 0;
+        for (long instruction : program) {
+            if (FractionMath.denominator(instruction) != 0) {
+                stack[size++] = Fraction.valueOf(instruction);
+                continue;
+            }
+            Fraction b = stack[--size];
+            Fraction a = stack[size - 1];
+            if (instruction == ADD) {
+                stack[size - 1] = a.add(b);
+            } else if (instruction == SUBTRACT) {
+                stack[size - 1] = a.subtract(b);
+            } else if (instruction == MULTIPLY) {
+                stack[size - 1] = a.multiply(b);
+            } else {
+                stack[size - 1] = a.divide(b);
+            }
+        }
+        return stack[0];
+    }
+
+    private static long apply(long instruction, long a, long b) {
+        if (instruction == ADD) {
+            return FractionMath.add(a, b);
+        } else if (instruction == SUBTRACT) {
+            return FractionMath.subtract(a, b);
+        } else if (instruction == MULTIPLY) {
+            return FractionMath.multiply(a, b);
+        } else {
+            return FractionMath.divide(a, b);
+        }
+    }
+
+    private static int reduce(int depth, TokenStream tokens) {
+        if (depth < 2) {
+            throw new IllegalArgumentException("Invalid expression: " + tokens.source());
+        }
+        return depth - 1;
+    }
+
+    /**
+     * 运算符 token 类型对应的运算码，PLUS 到 DIVIDE 依次对应 ADD 到 DIVIDE
+     */
+    private static long opcode(int kind) {
+        return (long) kind << 32;
+    }
+}
@@ -0,0 +1,113 @@
+package com.mathgenerator.service;
+
+import com.mathgenerator.model.FractionMath;
+
+/**
+ * @date: 2025/03/25
+ * @description: 表达式词法分析器
+ * 一次扫描把表达式切分为 {@link TokenStream}，数字在扫描时直接解析为打包的分数。
+ * 空白以及其他无关字符（如末尾的"="）会被忽略。
+ */
+public final class ExpressionLexer {
+    private ExpressionLexer() {
+    }
+
+    /**
+     * 分词
+     * @param expression 表达式
+     * @return token 流
+     * @throws NumberFormatException 数字格式错误
+     */
+    public static TokenStream lex(CharSequence expression) {
+        int length = expression.length();
+        TokenStream tokens = new TokenStream(expression, Math.max(8, length / 2));
+        for (int i = 0; i < length; i++) {
+            char c = expression.charAt(i);
+            if (isDigit(c) || c == '\'') {
+                int start = i;
+                while (i < length && isNumberChar(expression.charAt(i))) {
+                    i++;
+                }
+                tokens.add(TokenStream.NUMBER, FractionMath.parse(expression, start, i), start, i);
+                i--;
+            } else {
+                int kind = kindOf(c);
+                if (kind >= 0) {
+                    tokens.add(kind, 0L, i, i + 1);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 直接对 UTF-8 字节分词，结果与先解码再调用 {@link #lex(CharSequence)} 相同
+     * 多字节字符中只有 ×（C3 97）和 ÷（C3 B7）是运算符，其余非 ASCII 字节都被忽略；
+     * token 的位置为字节偏移。
+     * @param expression 表达式的 UTF-8 字节
+     * @return token 流
+     * @throws NumberFormatException 数字格式错误
+     */
+    public static TokenStream lex(ByteCharSequence expression) {
+        int length = expression.length();
+        TokenStream tokens = new TokenStream(expression, Math.max(8, length / 2));
+        for (int i = 0; i < length; i++) {
+            char c = expression.charAt(i);
+            if (isDigit(c) || c == '\'') {
+                int start = i;
+                while (i < length && isNumberChar(expression.charAt(i))) {
+                    i++;
+                }
+                tokens.add(TokenStream.NUMBER, FractionMath.parse(expression, start, i), start, i);
+                i--;
+            } else if (c < 0x80) {
+                int kind = kindOf(c);
+                if (kind >= 0) {
+                    tokens.add(kind, 0L, i, i + 1);
+                }
+            } else if (c == 0xC3 && i + 1 < length) {
+                // 0xC3 是首字节，不会出现在其他字符的后续字节中
+                char next = expression.charAt(i + 1);
+                if (next == 0x97) {
+                    tokens.add(TokenStream.MULTIPLY, 0L, i, i + 2);
+                    i++;
+                } else if (next == 0xB7) {
+                    tokens.add(TokenStream.DIVIDE, 0L, i, i + 2);
+                    i++;
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * @param c 字符
+     * @return 运算符或括号对应的 token 类型，其他字符返回 -1
+     */
+    static int kindOf(char c) {
+        switch (c) {
+            case '+':
+                return TokenStream.PLUS;
+            case '-':
+                return TokenStream.MINUS;
+            case '×':
+                return TokenStream.MULTIPLY;
+            case '÷':
+                return TokenStream.DIVIDE;
+            case '(':
+                return TokenStream.LEFT_BRACKET;
+            case ')':
+                return TokenStream.RIGHT_BRACKET;
+            default:
+                return -1;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isNumberChar(char c) {
+        return isDigit(c) || c == '\'' || c == '/';
+    }
+}
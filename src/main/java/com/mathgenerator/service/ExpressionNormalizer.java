@@ -1,11 +1,16 @@
 package com.mathgenerator.service;
 
+import com.mathgenerator.model.ExpressionNode;
+import com.mathgenerator.model.Fingerprint;
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.model.FractionMath;
+import com.mathgenerator.model.NumberNode;
+import com.mathgenerator.model.OperatorNode;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
-import static com.mathgenerator.constant.GlobalConstant.*;
-
-
 /**
  * @author: YiLaiL
  * @date: 2025/03/13
@@ -22,14 +27,34 @@ public class ExpressionNormalizer {
      */
     public String normalizeExpression(String expression) {
         // 1. 分词
-        List<String> tokens = tokenize(expression);
+        return normalize(tokenize(expression));
+    }
 
+    /**
+     * 标准化已分词的表达式，调用方已持有 token 流时无需再次分词
+     *
+     * @param tokens token 流
+     * @return 标准化后的表达式
+     */
+    public String normalize(TokenStream tokens) {
         // 2. 转换为逆波兰表达式 (考虑运算符优先级)
-        List<String> rpn = shuntingYard(tokens);
+        int[] rpn = shuntingYard(tokens);
 
         // 3. 表达式树 (便于操作)
-        BaseExpressionNode root = buildExpressionTree(rpn);
+        ExpressionNode root = buildExpressionTree(tokens, rpn);
+
+        // 4. 标准化表达式树并转换为字符串
+        return normalize(root);
+    }
 
+    /**
+     * 直接标准化表达式树，生成器自己构建的树无需先转为字符串再解析。
+     * 标准化会原地重排树中 + 和 × 的运算链，根节点对象保持不变。
+     *
+     * @param root 表达式树的根节点
+     * @return 标准化后的表达式
+     */
+    public String normalize(ExpressionNode root) {
         // 4. 标准化表达式树 (递归排序)
         normalizeNode(root);
 
@@ -38,272 +63,259 @@ public class ExpressionNormalizer {
     }
 
     /**
-     * 分词器，将表达式分割成 token 列表
+     * 标准化表达式树并计算标准形式的指纹，不生成字符串。
+     * 标准化后文本相同的题目指纹相同，去重时只需比较指纹，通过去重后再调用 root.toString() 输出。
+     *
+     * @param root        表达式树的根节点，标准化会原地调整
+     * @param fingerprint 保存结果的指纹，会先被清空
+     * @return fingerprint
+     */
+    public Fingerprint fingerprint(ExpressionNode root, Fingerprint fingerprint) {
+        normalizeNode(root);
+        root.hashTo(fingerprint.reset());
+        return fingerprint;
+    }
+
+    /**
+     * 分词器，将表达式分割成 token 流
      *
      * @param expression 表达式
-     * @return token 列表
+     * @return token 流
      */
-    public List<String> tokenize(String expression) {
-        List<String> tokens = new ArrayList<>();
-        StringBuilder currentToken = new StringBuilder();
-        for (char c : expression.toCharArray()) {
-            if (Character.isWhitespace(c)) {
-                if (currentToken.length() > 0) {
-                    tokens.add(currentToken.toString());
-                    currentToken.setLength(0);
-                }
-            } else if (isOperator(String.valueOf(c))) {
-                if (currentToken.length() > 0) {
-                    tokens.add(currentToken.toString());
-                    currentToken.setLength(0);
-                }
-                tokens.add(String.valueOf(c));
-            } else {
-                currentToken.append(c);
-            }
-        }
-        if (currentToken.length() > 0) {
-            tokens.add(currentToken.toString());
-        }
-        return tokens;
+    public TokenStream tokenize(String expression) {
+        return ExpressionLexer.lex(expression);
     }
 
     /**
      * Shunting Yard 算法，将中缀表达式转换为逆波兰表达式
      *
-     * @param tokens token 列表
-     * @return 逆波兰表达式列表
+     * @param tokens token 流
+     * @return 逆波兰表达式中各 token 的下标
      */
-    public List<String> shuntingYard(List<String> tokens) {
+    public int[] shuntingYard(TokenStream tokens) {
         // 输出队列
-        List<String> outputQueue = new ArrayList<>();
+        int[] outputQueue = new int[tokens.size()];
+        int outputSize = 0;
         // 运算符栈
-        List<String> operatorStack = new ArrayList<>();
+        int[] operatorStack = new int[tokens.size()];
+        int operatorSize = 0;
 
-        for (String token : tokens) {
+        for (int i = 0; i < tokens.size(); i++) {
+            int kind = tokens.kind(i);
             // 判断是否为数字
-            if (isNumber(token)) {
-                outputQueue.add(token);
+            if (kind == TokenStream.NUMBER) {
+                outputQueue[outputSize++] = i;
                 // 判断是否为操作符
-            } else if (isOperator(token)) {
+            } else if (TokenStream.isOperator(kind)) {
                 // 操作符栈不为空且栈顶元素优先级大于等于当前元素，则将栈顶元素弹出并加入输出队列
-                while (!operatorStack.isEmpty() && hasHigherPrecedence(operatorStack.get(operatorStack.size() - 1), token)) {
-                    outputQueue.add(operatorStack.remove(operatorStack.size() - 1));
+                while (operatorSize > 0 && TokenStream.precedence(tokens.kind(operatorStack[operatorSize - 1])) >= TokenStream.precedence(kind)) {
+                    outputQueue[outputSize++] = operatorStack[--operatorSize];
                 }
-                operatorStack.add(token);
-            } else if (LEFT_BRACKET.equals(token)) {
-                operatorStack.add(token);
-            } else if (RIGHT_BRACKET.equals(token)) {
+                operatorStack[operatorSize++] = i;
+            } else if (kind == TokenStream.LEFT_BRACKET) {
+                operatorStack[operatorSize++] = i;
+            } else if (kind == TokenStream.RIGHT_BRACKET) {
                 // 将栈顶元素弹出并加入输出队列，直到遇到左括号
-                while (!operatorStack.isEmpty() && !LEFT_BRACKET.equals(operatorStack.get(operatorStack.size() - 1))) {
-                    outputQueue.add(operatorStack.remove(operatorStack.size() - 1));
+                while (operatorSize > 0 && tokens.kind(operatorStack[operatorSize - 1]) != TokenStream.LEFT_BRACKET) {
+                    outputQueue[outputSize++] = operatorStack[--operatorSize];
                 }
                 // 将 "(" 从操作符栈中弹出
-                operatorStack.remove(operatorStack.size() - 1);
+                operatorSize--;
             }
         }
 
-        while (!operatorStack.isEmpty()) {
-            outputQueue.add(operatorStack.remove(operatorStack.size() - 1));
+        while (operatorSize > 0) {
+            outputQueue[outputSize++] = operatorStack[--operatorSize];
         }
-        return outputQueue;
+        return Arrays.copyOf(outputQueue, outputSize);
     }
 
     /**
      * 构建表达式树
      *
-     * @param rpn 逆波兰表达式
+     * @param tokens token 流
+     * @param rpn    逆波兰表达式中各 token 的下标
      * @return 表达式树的根节点
      */
-    public BaseExpressionNode buildExpressionTree(List<String> rpn) {
-        List<BaseExpressionNode> stack = new ArrayList<>();
-        for (String token : rpn) {
-            if (isOperator(token)) {
-                BaseExpressionNode right = stack.remove(stack.size() - 1);
-                BaseExpressionNode left = stack.remove(stack.size() - 1);
-                OperatorNodeBase operatorNodeBase = new OperatorNodeBase(token, left, right);
-                stack.add(operatorNodeBase);
-                setFrontOperator(operatorNodeBase);
+    public ExpressionNode buildExpressionTree(TokenStream tokens, int[] rpn) {
+        ExpressionNode[] stack = new ExpressionNode[rpn.length];
+        int size = 0;
+        for (int token : rpn) {
+            if (TokenStream.isOperator(tokens.kind(token))) {
+                ExpressionNode right = stack[--size];
+                ExpressionNode left = stack[--size];
+                stack[size++] = new OperatorNode(TokenStream.symbol(tokens.kind(token)), left, right);
             } else {
-                stack.add(new NumberNodeBase(token));
+                stack[size++] = new NumberNode(tokens.text(token), tokens.value(token));
             }
         }
-        return stack.get(0);
-    }
-
-
-    private void setFrontOperator(OperatorNodeBase node) {
-        if (node.left instanceof OperatorNodeBase) {
-            ((OperatorNodeBase) node.left).frontOperator = node.operator;
-        }
-        if (node.right instanceof OperatorNodeBase) {
-            ((OperatorNodeBase) node.right).frontOperator = node.operator;
-        }
+        return stack[0];
     }
 
     /**
-     * 递归标准化表达式树
+     * 判断两棵表达式树标准化后是否相同：先比较结构键，键相同时再逐个节点确认，整个过程不生成字符串。
+     * 两棵树都会被原地标准化。
      *
-     * @param node 当前节点
+     * @param a 表达式树 a
+     * @param b 表达式树 b
+     * @return 标准化后相同返回 true
      */
-    private void normalizeNode(BaseExpressionNode node) {
-        if (node instanceof OperatorNodeBase) {
-            OperatorNodeBase operatorNode = (OperatorNodeBase) node;
-            normalizeNode(operatorNode.left);
-            normalizeNode(operatorNode.right);
+    public boolean equivalent(ExpressionNode a, ExpressionNode b) {
+        return normalizeNode(a) == normalizeNode(b) && sameStructure(a, b);
+    }
 
-            if (PLUS.equals(operatorNode.operator) || MULTIPLICATION.equals(operatorNode.operator)) {
-                // 交换律
-                if (compareNodes(operatorNode.left, operatorNode.right) > 0) {
-                    BaseExpressionNode temp = operatorNode.left;
-                    operatorNode.left = operatorNode.right;
-                    operatorNode.right = temp;
-                }
-            }
+    private boolean sameStructure(ExpressionNode a, ExpressionNode b) {
+        if (a instanceof NumberNode || b instanceof NumberNode) {
+            return a instanceof NumberNode && b instanceof NumberNode
+                    && ((NumberNode) a).getText().equals(((NumberNode) b).getText());
         }
+        OperatorNode operatorA = (OperatorNode) a;
+        OperatorNode operatorB = (OperatorNode) b;
+        return operatorA.getOperator() == operatorB.getOperator()
+                && sameStructure(operatorA.getLeft(), operatorB.getLeft())
+                && sameStructure(operatorA.getRight(), operatorB.getRight());
     }
 
     /**
-     * 比较两个节点的大小
+     * 递归标准化表达式树，自底向上计算每棵子树的结构键：
+     * 标准化后结构相同的子树键相同，父节点的键只由运算符和两个子树的键得到，每个节点只计算一次。
+     * 连续的 + 或 × 按结合律展开为一条运算链，各运算数排序后重新连接为左结合的链，
+     * 因此 1 + 2 + 3 与 3 + (2 + 1) 得到相同的结果；- 和 ÷ 不满足交换律，只标准化其左右子树。
      *
-     * @param a 节点 a
-     * @param b 节点 b
-     * @return 比较结果
+     * @param node 当前节点
+     * @return 子树的结构键
      */
-    private int compareNodes(BaseExpressionNode a, BaseExpressionNode b) {
-        if (!(a instanceof NumberNodeBase) || !(b instanceof NumberNodeBase)) {
-            return a.toString().compareTo(b.toString());
+    private long normalizeNode(ExpressionNode node) {
+        if (!(node instanceof OperatorNode)) {
+            NumberNode number = (NumberNode) node;
+            return mix(number.getText().hashCode() * 0x9E3779B97F4A7C15L + number.getPacked());
         }
-
-        NumberNodeBase numNodeA = (NumberNodeBase) a;
-        NumberNodeBase numNodeB = (NumberNodeBase) b;
-
-        String[] partsA = numNodeA.value.split(APOSTROPHE);
-        String[] partsB = numNodeB.value.split(APOSTROPHE);
-
-        if (partsA.length != 2 || partsB.length != 2) {
-            return Integer.compare(partsA.length, partsB.length);
+        OperatorNode operatorNode = (OperatorNode) node;
+        char operator = operatorNode.getOperator();
+        if (operator != '+' && operator != '×') {
+            long leftKey = normalizeNode(operatorNode.getLeft());
+            long rightKey = normalizeNode(operatorNode.getRight());
+            return combine(operator, leftKey, rightKey);
         }
 
-        int integerA = Integer.parseInt(partsA[0]);
-        int integerB = Integer.parseInt(partsB[0]);
-
-        int integerComparison = Integer.compare(integerA, integerB);
-        if (integerComparison != 0) {
-            return integerComparison;
+        // 交换律和结合律：收集整条运算链的运算符节点和运算数
+        List<OperatorNode> chain = new ArrayList<>();
+        List<ExpressionNode> operands = new ArrayList<>();
+        chain.add(operatorNode);
+        collectChain(operatorNode, operator, chain, operands);
+
+        int size = operands.size();
+        ExpressionNode[] sorted = operands.toArray(new ExpressionNode[size]);
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = normalizeNode(sorted[i]);
         }
-
-        double fractionA = parseFraction(partsA[1]);
-        double fractionB = parseFraction(partsB[1]);
-
-        return Double.compare(fractionA, fractionB);
-    }
-
-    private double parseFraction(String fractionString) {
-        try {
-            return Double.parseDouble(fractionString);
-        } catch (NumberFormatException e) {
-            String[] fractionParts = fractionString.split(SEMICOLON);
-            if (fractionParts.length == 2) {
-                double numerator = Double.parseDouble(fractionParts[0]);
-                double denominator = Double.parseDouble(fractionParts[1]);
-                return numerator / denominator;
+        // 运算数通常只有两三个，插入排序即可
+        for (int i = 1; i < size; i++) {
+            ExpressionNode operand = sorted[i];
+            long key = keys[i];
+            int j = i - 1;
+            while (j >= 0 && compareNodes(sorted[j], keys[j], operand, key) > 0) {
+                sorted[j + 1] = sorted[j];
+                keys[j + 1] = keys[j];
+                j--;
             }
-            throw new IllegalArgumentException("Invalid fraction format: " + fractionString, e);
+            sorted[j + 1] = operand;
+            keys[j + 1] = key;
         }
-    }
-
-    private boolean isOperator(String token) {
-        return PLUS.equals(token) || MINUS.equals(token) || MULTIPLICATION.equals(token) || DIVISION.equals(token);
-    }
 
-    private boolean isNumber(String token) {
-        boolean containsDigit = false;
-        for (int i = 0; i < token.length(); i++) {
-            if (Character.isDigit(token.charAt(i))) {
-                containsDigit = true;
-                break;
-            }
+        // 复用原有的运算符节点重新连接为左结合的链，根节点保持不变
+        ExpressionNode left = sorted[0];
+        long key = keys[0];
+        for (int i = 1; i < size; i++) {
+            OperatorNode link = chain.get(size - 1 - i);
+            link.setChildren(left, sorted[i]);
+            key = combine(operator, key, keys[i]);
+            left = link;
         }
-        return containsDigit;
+        return key;
     }
 
     /**
-     * 判断是否有更高的优先级操作符
-     *
-     * @param op1 操作符1 操作符栈弹出的操作符
-     * @param op2 操作符2 传入的操作符
-     * @return 是否有更高的优先级操作符
+     * 收集与 node 运算符相同、直接相连的运算符节点和链上的运算数
      */
-    private boolean hasHigherPrecedence(String op1, String op2) {
-        return !("(".equals(op2) || ")".equals(op2)) && precedence(op1) >= precedence(op2);
-    }
-
-    private int precedence(String operator) {
-        switch (operator) {
-            case PLUS:
-            case MINUS:
-                return 1;
-            case MULTIPLICATION:
-            case DIVISION:
-                return 2;
-            default:
-                return 0;
+    private void collectChain(OperatorNode node, char operator, List<OperatorNode> chain, List<ExpressionNode> operands) {
+        for (ExpressionNode child : new ExpressionNode[]{node.getLeft(), node.getRight()}) {
+            if (child instanceof OperatorNode && ((OperatorNode) child).getOperator() == operator) {
+                chain.add((OperatorNode) child);
+                collectChain((OperatorNode) child, operator, chain, operands);
+            } else {
+                operands.add(child);
+            }
         }
     }
 
     /**
-     * 表达式树节点抽象类
+     * @return 运算符节点的结构键，由运算符和左右子树的键得到
      */
-    public abstract static class BaseExpressionNode {
-        /**
-         * 转化字符串
-         *
-         * @return 转化后的字符串
-         */
-        @Override
-        public abstract String toString();
+    private static long combine(char operator, long leftKey, long rightKey) {
+        return mix((leftKey * 31 + rightKey) * 0xC2B2AE3D27D4EB4FL + operator);
     }
 
     /**
-     * 操作符节点
+     * 比较两个节点的大小：先比较精确值，值相等时按结构区分，整个过程不生成字符串，也不使用浮点数。
+     * 值相等时优先级低的（运算式）在前，数字按原有写法比较，运算式依次比较运算符和结构键。
+     * 结构键相同的两棵子树标准化后完全相同，交换与否结果一样。
+     *
+     * @param a    节点 a
+     * @param keyA 节点 a 的结构键
+     * @param b    节点 b
+     * @param keyB 节点 b 的结构键
+     * @return 比较结果
      */
-    private static class OperatorNodeBase extends BaseExpressionNode {
-        String operator;
-        BaseExpressionNode left;
-        BaseExpressionNode right;
-        String frontOperator;
-
-        public OperatorNodeBase(String operator, BaseExpressionNode left, BaseExpressionNode right) {
-            this.operator = operator;
-            this.left = left;
-            this.right = right;
+    private int compareNodes(ExpressionNode a, long keyA, ExpressionNode b, long keyB) {
+        int valueComparison = compareValues(a, b);
+        if (valueComparison != 0 || keyA == keyB) {
+            return valueComparison;
         }
-
-        @Override
-        public String toString() {
-            if ((PLUS.equals(operator) || MINUS.equals(operator)) &&
-                    (MULTIPLICATION.equals(frontOperator) || DIVISION.equals(frontOperator))) {
-                return "(" + left.toString() + " " + operator + " " + right.toString() + ")";
-            } else {
-                return left.toString() + " " + operator + " " + right.toString();
-            }
+        int precedenceComparison = Integer.compare(a.precedence(), b.precedence());
+        if (precedenceComparison != 0) {
+            return precedenceComparison;
+        }
+        if (a instanceof NumberNode) {
+            return ((NumberNode) a).getText().compareTo(((NumberNode) b).getText());
         }
+        int operatorComparison = Character.compare(((OperatorNode) a).getOperator(), ((OperatorNode) b).getOperator());
+        return operatorComparison != 0 ? operatorComparison : Long.compareUnsigned(keyA, keyB);
     }
 
     /**
-     * 数字节点
+     * 比较两个节点的精确值，数字节点直接比较打包形式，无法计算的子树（如除数为 0）排在最后
      */
-    private static class NumberNodeBase extends BaseExpressionNode {
-        String value;
-
-        public NumberNodeBase(String value) {
-            this.value = value;
+    private int compareValues(ExpressionNode a, ExpressionNode b) {
+        if (a instanceof NumberNode && b instanceof NumberNode) {
+            return FractionMath.compare(((NumberNode) a).getPacked(), ((NumberNode) b).getPacked());
+        }
+        Fraction valueA = valueOf(a);
+        Fraction valueB = valueOf(b);
+        if (valueA == null || valueB == null) {
+            return valueA == null ? (valueB == null ? 0 : 1) : -1;
         }
+        return valueA.compareTo(valueB);
+    }
 
-        @Override
-        public String toString() {
-            return value;
+    private Fraction valueOf(ExpressionNode node) {
+        try {
+            return node.getValue();
+        } catch (IllegalArgumentException e) {
+            return null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * MurmurHash3 的 fmix64
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
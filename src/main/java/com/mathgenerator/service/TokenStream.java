@@ -0,0 +1,159 @@
+package com.mathgenerator.service;
+
+import java.util.Arrays;
+
+/**
+ * @date: 2025/03/25
+ * @description: 词法分析结果
+ * 用并行的基本类型数组保存 token：类型、数值（数字为 FractionMath 打包的值）
+ * 以及在原表达式中的位置，不为每个 token 创建 String。
+ * 计算器和标准化器共用同一个 TokenStream，同一个表达式只需分词一次。
+ */
+public final class TokenStream {
+    public static final int NUMBER = 0;
+    public static final int PLUS = 1;
+    public static final int MINUS = 2;
+    public static final int MULTIPLY = 3;
+    public static final int DIVIDE = 4;
+    public static final int LEFT_BRACKET = 5;
+    public static final int RIGHT_BRACKET = 6;
+
+    private final CharSequence source;
+    private int[] kinds;
+    private long[] values;
+    private int[] starts;
+    private int[] ends;
+    private int size;
+
+    TokenStream(CharSequence source, int capacity) {
+        this.source = source;
+        this.kinds = new int[capacity];
+        this.values = new long[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+    }
+
+    void add(int kind, long value, int start, int end) {
+        if (size == kinds.length) {
+            int capacity = Math.max(8, size * 2);
+            kinds = Arrays.copyOf(kinds, capacity);
+            values = Arrays.copyOf(values, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        kinds[size] = kind;
+        values[size] = value;
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    /**
+     * @return token 个数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param i token 下标
+     * @return token 类型
+     */
+    public int kind(int i) {
+        return kinds[i];
+    }
+
+    /**
+     * @param i token 下标
+     * @return 数字 token 的打包值
+     */
+    public long value(int i) {
+        return values[i];
+    }
+
+    /**
+     * @param i token 下标
+     * @return token 在原表达式中的起始位置
+     */
+    public int start(int i) {
+        return starts[i];
+    }
+
+    /**
+     * @param i token 下标
+     * @return token 在原表达式中的结束位置（不含）
+     */
+    public int end(int i) {
+        return ends[i];
+    }
+
+    /**
+     * @return 原表达式
+     */
+    public CharSequence source() {
+        return source;
+    }
+
+    /**
+     * 将 token 原文追加到 StringBuilder，避免创建子串
+     */
+    public void appendText(int i, StringBuilder builder) {
+        builder.append(source, starts[i], ends[i]);
+    }
+
+    /**
+     * @param i token 下标
+     * @return token 原文
+     */
+    public String text(int i) {
+        return source.subSequence(starts[i], ends[i]).toString();
+    }
+
+    /**
+     * @param kind token 类型
+     * @return 是否为四则运算符
+     */
+    public static boolean isOperator(int kind) {
+        return kind >= PLUS && kind <= DIVIDE;
+    }
+
+    /**
+     * @param kind 运算符类型
+     * @return 运算符优先级，非运算符返回 0
+     */
+    public static int precedence(int kind) {
+        switch (kind) {
+            case PLUS:
+            case MINUS:
+                return 1;
+            case MULTIPLY:
+            case DIVIDE:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @param kind 运算符类型
+     * @return 运算符字符
+     */
+    public static char symbol(int kind) {
+        switch (kind) {
+            case PLUS:
+                return '+';
+            case MINUS:
+                return '-';
+            case MULTIPLY:
+                return '×';
+            case DIVIDE:
+                return '÷';
+            case LEFT_BRACKET:
+                return '(';
+            case RIGHT_BRACKET:
+                return ')';
+            default:
+                throw new IllegalArgumentException("Not an operator: " + kind);
+        }
+    }
+}
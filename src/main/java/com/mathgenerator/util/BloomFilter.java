@@ -0,0 +1,154 @@
+package com.mathgenerator.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @date: 2025/04/03
+ * @description: 128 位键的布隆过滤器
+ * 按预计的键数和目标误判率确定位数和哈希函数个数，k 个位置由键的两个 64 位部分按双重哈希得到。
+ * 置位使用 CAS，多个线程可以同时插入。put 时若有任何一位由 0 变为 1，该键一定是第一次出现，
+ * 调用方可以跳过精确查找；所有位都已为 1 时可能重复，需要精确查找确认。
+ * 同时统计插入次数、判定为新键的次数和误判次数，运行结束时报告。
+ */
+public final class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder definitelyNew = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * @param expectedSize      预计的键数
+     * @param falsePositiveRate 目标误判率，在 (0, 1) 之间
+     */
+    public BloomFilter(long expectedSize, double falsePositiveRate) {
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+        long n = Math.max(1, expectedSize);
+        // m = -n ln p / (ln 2)^2, k = m / n ln 2
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) >>> 6));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    /**
+     * 插入一个键
+     * @param high 键的高 64 位
+     * @param low  键的低 64 位
+     * @return 键一定是第一次插入时返回 true，可能已经插入过时返回 false
+     */
+    public boolean put(long high, long low) {
+        puts.increment();
+        boolean changed = false;
+        long hash = low;
+        for (int i = 0; i < hashCount; i++) {
+            long index = (hash & Long.MAX_VALUE) % bitCount;
+            if (setBit(index)) {
+                changed = true;
+            }
+            hash += high;
+        }
+        if (changed) {
+            definitelyNew.increment();
+        }
+        return changed;
+    }
+
+    /**
+     * @param high 键的高 64 位
+     * @param low  键的低 64 位
+     * @return 键不存在时一定返回 false
+     */
+    public boolean mightContain(long high, long low) {
+        long hash = low;
+        for (int i = 0; i < hashCount; i++) {
+            long index = (hash & Long.MAX_VALUE) % bitCount;
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+            hash += high;
+        }
+        return true;
+    }
+
+    /**
+     * @return 置位前该位为 0 时返回 true
+     */
+    private boolean setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        while (true) {
+            long current = bits.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (bits.compareAndSet(word, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 记录一次误判：put 返回 false，精确查找后发现是新键
+     */
+    public void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * @return 插入次数
+     */
+    public long getPuts() {
+        return puts.sum();
+    }
+
+    /**
+     * @return 判定为新键、跳过精确查找的次数
+     */
+    public long getDefinitelyNew() {
+        return definitelyNew.sum();
+    }
+
+    /**
+     * @return 误判次数
+     */
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    /**
+     * @return 为 1 的位所占的比例
+     */
+    public double fillRatio() {
+        long set = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            set += Long.bitCount(bits.get(i));
+        }
+        return (double) set / bitCount;
+    }
+
+    /**
+     * @return 一行统计信息
+     */
+    @Override
+    public String toString() {
+        long maybe = getPuts() - getDefinitelyNew();
+        return String.format("Bloom filter: %d bits, %d hashes, fill %.1f%%, %d lookups, %d skipped, %d false positives (%.3f%% of checked)",
+                bitCount, hashCount, fillRatio() * 100, getPuts(), getDefinitelyNew(), getFalsePositives(),
+                maybe == 0 ? 0.0 : getFalsePositives() * 100.0 / maybe);
+    }
+}
@@ -0,0 +1,118 @@
+package com.mathgenerator.util;
+
+import java.util.Arrays;
+
+/**
+ * @date: 2025/03/31
+ * @description: 非负 int 键到 long 值的开放寻址哈希表
+ * 键和值分别保存在基本类型数组中，插入和查找都不装箱，适合按题号建立百万级的索引。
+ * 不支持删除；非线程安全，建好后只读时可以在多个线程间共享。
+ */
+public final class IntLongHashMap {
+    /**
+     * 空槽位的键，合法的键都是非负数
+     */
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private long[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * @param expectedSize 预计的键数
+     */
+    public IntLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * 键不存在时插入
+     * @param key 键，必须非负
+     * @param value 值
+     * @return 插入成功返回 true，键已存在时保留原值并返回 false
+     */
+    public boolean putIfAbsent(int key, long value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Key must be non-negative: " + key);
+        }
+        int slot = slot(key);
+        if (keys[slot] == key) {
+            return false;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+        return true;
+    }
+
+    /**
+     * @param key 键
+     * @return 键是否存在
+     */
+    public boolean containsKey(int key) {
+        return key >= 0 && keys[slot(key)] == key;
+    }
+
+    /**
+     * @param key 键
+     * @param defaultValue 键不存在时的返回值
+     * @return 键对应的值
+     */
+    public long get(int key, long defaultValue) {
+        if (key < 0) {
+            return defaultValue;
+        }
+        int slot = slot(key);
+        return keys[slot] == key ? values[slot] : defaultValue;
+    }
+
+    /**
+     * @return 键数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 键所在的槽位，键不存在时为应插入的空槽位
+     */
+    private int slot(int key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * 打散连续的题号，避免线性探测时聚集
+     */
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,103 @@
+package com.mathgenerator.util;
+
+/**
+ * @date: 2025/04/02
+ * @description: long 键到对象的开放寻址哈希表
+ * 键保存在 long 数组中不装箱，每项只占一个 long 和一个引用。槽位由键混合后得到，与 IntLongHashMap 相同，
+ * 结构化的键也不会集中在少数槽位上。值不能为 null。不支持删除；非线程安全。
+ *
+ * @param <V> 值的类型
+ */
+public final class LongObjectHashMap<V> {
+    private long[] keys;
+    private Object[] values;    // 值为 null 表示空槽位
+    private int size;
+    private int mask;
+
+    /**
+     * @param expectedSize 预计的键数
+     */
+    public LongObjectHashMap(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * 键不存在时插入
+     * @param key 键
+     * @param value 值，不能为 null
+     * @return 键已存在时返回原值（不替换），否则插入并返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value must not be null");
+        }
+        int slot = slot(key);
+        if (values[slot] != null) {
+            return (V) values[slot];
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        // 负载因子不超过 3/4
+        if (++size * 4 > keys.length * 3) {
+            rehash();
+        }
+        return null;
+    }
+
+    /**
+     * @param key 键
+     * @return 键对应的值，不存在时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        return (V) values[slot(key)];
+    }
+
+    /**
+     * @return 键数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 键所在的槽位，键不存在时为应插入的空槽位
+     */
+    private int slot(long key) {
+        int slot = mix(key) & mask;
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * 两次乘法混合，键的每一位都影响槽位
+     */
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32);
+    }
+}
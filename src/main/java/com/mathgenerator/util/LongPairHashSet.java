@@ -0,0 +1,159 @@
+package com.mathgenerator.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * @date: 2025/04/02
+ * @description: 128 位键（两个 long）的开放寻址哈希集合
+ * 键的高、低 64 位交替保存在一个 long 数组中，每个键只占 16 字节，插入和查找都不创建对象，
+ * 适合保存千万级题目的指纹。槽位由两个 long 混合后得到，与 IntLongHashMap 相同，
+ * 低位取值很少或全为 0 的结构化键也不会集中在少数槽位上。
+ * 不支持删除；非线程安全。
+ */
+public final class LongPairHashSet {
+    private long[] slots;   // 槽位 i 的键为 slots[2i], slots[2i + 1]，全为 0 表示空槽位
+    private boolean hasZero;    // (0, 0) 与空槽位相同，单独记录
+    private int size;
+    private int mask;
+
+    /**
+     * @param expectedSize 预计的键数
+     */
+    public LongPairHashSet(int expectedSize) {
+        allocate(Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1);
+    }
+
+    private void allocate(int capacity) {
+        slots = new long[capacity * 2];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @param high 键的高 64 位
+     * @param low  键的低 64 位
+     * @return 键不存在时插入并返回 true，已存在时返回 false
+     */
+    public boolean add(long high, long low) {
+        if (high == 0 && low == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int slot = slot(high, low);
+        if (slots[slot * 2] == high && slots[slot * 2 + 1] == low) {
+            return false;
+        }
+        slots[slot * 2] = high;
+        slots[slot * 2 + 1] = low;
+        // 负载因子不超过 3/4
+        if (++size * 4 > (mask + 1) * 3) {
+            rehash();
+        }
+        return true;
+    }
+
+    /**
+     * @param high 键的高 64 位
+     * @param low  键的低 64 位
+     * @return 键是否存在
+     */
+    public boolean contains(long high, long low) {
+        if (high == 0 && low == 0) {
+            return hasZero;
+        }
+        int slot = slot(high, low);
+        return slots[slot * 2] == high && slots[slot * 2 + 1] == low;
+    }
+
+    /**
+     * @return 键数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 键数达到该值时下一次插入会扩容
+     */
+    public int capacity() {
+        return (mask + 1) / 4 * 3;
+    }
+
+    /**
+     * 键的处理方
+     */
+    public interface PairVisitor {
+        void visit(long high, long low) throws IOException;
+    }
+
+    /**
+     * 按 LongPairs 的顺序依次输出全部键，然后清空集合。
+     * 键在原数组上压缩到前部后排序，不分配额外内存，容量保持不变。
+     * @param visitor 键的处理方
+     * @throws IOException visitor 处理失败，此时集合已清空
+     */
+    public void drainSorted(PairVisitor visitor) throws IOException {
+        int count = 0;
+        for (int i = 0; i < slots.length; i += 2) {
+            if (slots[i] != 0 || slots[i + 1] != 0) {
+                slots[count * 2] = slots[i];
+                slots[count * 2 + 1] = slots[i + 1];
+                count++;
+            }
+        }
+        if (hasZero) {
+            // 空槽位至少还有四分之一，压缩后的末尾一定有空位
+            slots[count * 2] = 0;
+            slots[count * 2 + 1] = 0;
+            count++;
+        }
+        LongPairs.sort(slots, count);
+        try {
+            for (int i = 0; i < count; i++) {
+                visitor.visit(slots[i * 2], slots[i * 2 + 1]);
+            }
+        } finally {
+            Arrays.fill(slots, 0L);
+            hasZero = false;
+            size = 0;
+        }
+    }
+
+    /**
+     * @return 键所在的槽位，键不存在时为应插入的空槽位
+     */
+    private int slot(long high, long low) {
+        int slot = mix(high, low) & mask;
+        while ((slots[slot * 2] != 0 || slots[slot * 2 + 1] != 0)
+                && (slots[slot * 2] != high || slots[slot * 2 + 1] != low)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] old = slots;
+        allocate(old.length);
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != 0 || old[i + 1] != 0) {
+                int slot = slot(old[i], old[i + 1]);
+                slots[slot * 2] = old[i];
+                slots[slot * 2 + 1] = old[i + 1];
+            }
+        }
+    }
+
+    /**
+     * 两次乘法混合，键的每一位都影响槽位
+     */
+    private static int mix(long high, long low) {
+        long h = (high * 0xC2B2AE3D27D4EB4FL + low) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32);
+    }
+}
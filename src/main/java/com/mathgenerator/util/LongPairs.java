@@ -0,0 +1,93 @@
+package com.mathgenerator.util;
+
+/**
+ * @date: 2025/04/04
+ * @description: 交替保存在 long 数组中的 128 位键的比较和排序
+ * 第 i 个键为 pairs[2i]（高 64 位）, pairs[2i + 1]（低 64 位），先比较高位再比较低位，均按有符号数比较。
+ * 排序在原数组上进行，不分配额外内存。
+ */
+public final class LongPairs {
+    /**
+     * 元素个数不超过该值时使用插入排序
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private LongPairs() {
+    }
+
+    /**
+     * @return 小于、等于、大于时分别返回负数、0、正数
+     */
+    public static int compare(long high1, long low1, long high2, long low2) {
+        int c = Long.compare(high1, high2);
+        return c != 0 ? c : Long.compare(low1, low2);
+    }
+
+    /**
+     * 对前 count 个键排序
+     * @param pairs 键数组
+     * @param count 键数
+     */
+    public static void sort(long[] pairs, int count) {
+        sort(pairs, 0, count - 1);
+    }
+
+    /**
+     * 快速排序，只对较小的一侧递归，递归深度不超过 log n
+     */
+    private static void sort(long[] pairs, int left, int right) {
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            // 三数取中
+            int middle = (left + right) >>> 1;
+            if (less(pairs, middle, left)) {
+                swap(pairs, middle, left);
+            }
+            if (less(pairs, right, left)) {
+                swap(pairs, right, left);
+            }
+            if (less(pairs, right, middle)) {
+                swap(pairs, right, middle);
+            }
+            long pivotHigh = pairs[middle * 2];
+            long pivotLow = pairs[middle * 2 + 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (compare(pairs[i * 2], pairs[i * 2 + 1], pivotHigh, pivotLow) < 0) {
+                    i++;
+                }
+                while (compare(pairs[j * 2], pairs[j * 2 + 1], pivotHigh, pivotLow) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(pairs, i++, j--);
+                }
+            }
+            if (j - left < right - i) {
+                sort(pairs, left, j);
+                left = i;
+            } else {
+                sort(pairs, i, right);
+                right = j;
+            }
+        }
+        for (int i = left + 1; i <= right; i++) {
+            for (int j = i; j > left && less(pairs, j, j - 1); j--) {
+                swap(pairs, j, j - 1);
+            }
+        }
+    }
+
+    private static boolean less(long[] pairs, int i, int j) {
+        return compare(pairs[i * 2], pairs[i * 2 + 1], pairs[j * 2], pairs[j * 2 + 1]) < 0;
+    }
+
+    private static void swap(long[] pairs, int i, int j) {
+        long high = pairs[i * 2];
+        long low = pairs[i * 2 + 1];
+        pairs[i * 2] = pairs[j * 2];
+        pairs[i * 2 + 1] = pairs[j * 2 + 1];
+        pairs[j * 2] = high;
+        pairs[j * 2 + 1] = low;
+    }
+}
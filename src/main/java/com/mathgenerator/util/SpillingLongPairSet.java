@@ -0,0 +1,320 @@
+package com.mathgenerator.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @date: 2025/04/04
+ * @description: 内存预算有限的 128 位键集合
+ * 新键先放入内存中的 LongPairHashSet（热层），热层装满时按 LongPairs 的顺序排序后写入临时目录中的一个有序段文件，
+ * 然后清空热层继续插入。段文件只读映射到内存，查找时先查热层，再在每个段中二分查找。
+ * 段按层归并：热层写出的段在第 0 层，同一层攒够 MERGE_FACTOR 个段时多路归并为上一层的一个段，
+ * 每个键最多被重写 log(段数) 次，磁盘读写总量与键数成 n log n 关系，段数也只按对数增长。
+ * 堆中只有热层，段的内容由操作系统按需换入换出，键数不受堆大小限制。
+ * 不支持删除；非线程安全。
+ */
+public final class SpillingLongPairSet implements Closeable {
+    /**
+     * 同一层的段数达到该值时归并为上一层的一个段
+     */
+    private static final int MERGE_FACTOR = 4;
+    /**
+     * 写段文件的缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+    /**
+     * 每个键的字节数
+     */
+    private static final int KEY_BYTES = 16;
+    /**
+     * 段文件按 2^26 个键（1 GiB）分块映射，单个 MappedByteBuffer 不能超过 2 GiB
+     */
+    private static final int BLOCK_SHIFT = 26;
+    private static final long BLOCK_MASK = (1L << BLOCK_SHIFT) - 1;
+    /**
+     * 热层的最大槽位数，long 数组长度不能超过 int 范围
+     */
+    private static final long MAX_SLOTS = 1L << 29;
+
+    private final Path directory;
+    private final LongPairHashSet hot;
+    private final List<Run> runs = new ArrayList<>();
+    private long size;
+    private int spills;
+    private int merges;
+    private long mergedKeys;
+    private int nextFile;
+
+    /**
+     * @param memoryBytes 热层可以使用的内存字节数
+     * @param parent      存放段文件的目录，为 null 时使用系统临时目录
+     * @throws IOException 无法创建临时目录
+     */
+    public SpillingLongPairSet(long memoryBytes, Path parent) throws IOException {
+        // 槽位数取不超过预算的 2 的幂，每个槽位 16 字节
+        long slots = Math.min(MAX_SLOTS, Long.highestOneBit(Math.max(8, memoryBytes / KEY_BYTES)));
+        this.hot = new LongPairHashSet((int) (slots / 2));
+        this.directory = parent == null
+                ? Files.createTempDirectory("dedupe-")
+                : Files.createTempDirectory(parent, "dedupe-");
+    }
+
+    /**
+     * @param high 键的高 64 位
+     * @param low  键的低 64 位
+     * @return 键不存在时插入并返回 true，已存在时返回 false
+     * @throws IOException 写段文件失败
+     */
+    public boolean add(long high, long low) throws IOException {
+        if (hot.contains(high, low)) {
+            return false;
+        }
+        for (Run run : runs) {
+            if (run.contains(high, low)) {
+                return false;
+            }
+        }
+        return addNew(high, low);
+    }
+
+    /**
+     * 插入一个已经确认不在任何段中的键，只查找热层
+     */
+    private boolean addNew(long high, long low) throws IOException {
+        if (!hot.add(high, low)) {
+            return false;
+        }
+        size++;
+        if (hot.size() >= hot.capacity()) {
+            spill();
+        }
+        return true;
+    }
+
+    /**
+     * @param high 键的高 64 位
+     * @param low  键的低 64 位
+     * @return 键是否存在
+     */
+    public boolean contains(long high, long low) {
+        if (hot.contains(high, low)) {
+            return true;
+        }
+        for (Run run : runs) {
+            if (run.contains(high, low)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 键数
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return 热层写出到段文件的次数
+     */
+    public int getSpills() {
+        return spills;
+    }
+
+    /**
+     * @return 归并段的次数
+     */
+    public int getMerges() {
+        return merges;
+    }
+
+    /**
+     * @return 归并时写出的键数之和
+     */
+    public long getMergedKeys() {
+        return mergedKeys;
+    }
+
+    /**
+     * 热层排序后写入一个新段并清空
+     */
+    private void spill() throws IOException {
+        Path file = nextFile();
+        long count = hot.size();
+        try (RunWriter writer = new RunWriter(file)) {
+            hot.drainSorted(writer::write);
+        }
+        runs.add(new Run(file, count, 0));
+        spills++;
+        // 段按写出顺序排列，层数不增，同一层的段都在末尾
+        while (true) {
+            int level = runs.get(runs.size() - 1).level;
+            int first = runs.size() - 1;
+            while (first > 0 && runs.get(first - 1).level == level) {
+                first--;
+            }
+            if (runs.size() - first < MERGE_FACTOR) {
+                break;
+            }
+            merge(runs.subList(first, runs.size()), level + 1);
+        }
+    }
+
+    /**
+     * 多路归并末尾的一组段，替换为 level 层的一个段。插入前已经查过全部段，各段之间没有重复的键
+     */
+    private void merge(List<Run> group, int level) throws IOException {
+        Path file = nextFile();
+        long total = 0;
+        long[] positions = new long[group.size()];
+        try (RunWriter writer = new RunWriter(file)) {
+            while (true) {
+                int min = -1;
+                for (int i = 0; i < group.size(); i++) {
+                    Run run = group.get(i);
+                    if (positions[i] < run.count && (min < 0 || LongPairs.compare(
+                            run.high(positions[i]), run.low(positions[i]),
+                            group.get(min).high(positions[min]), group.get(min).low(positions[min])) < 0)) {
+                        min = i;
+                    }
+                }
+                if (min < 0) {
+                    break;
+                }
+                Run run = group.get(min);
+                writer.write(run.high(positions[min]), run.low(positions[min]));
+                positions[min]++;
+                total++;
+            }
+        }
+        for (Run run : group) {
+            delete(run.file);
+        }
+        group.clear();
+        runs.add(new Run(file, total, level));
+        merges++;
+        mergedKeys += total;
+    }
+
+    private Path nextFile() {
+        return directory.resolve("run-" + nextFile++ + ".bin");
+    }
+
+    /**
+     * 删除段文件和临时目录
+     */
+    @Override
+    public void close() throws IOException {
+        for (Run run : runs) {
+            delete(run.file);
+        }
+        runs.clear();
+        delete(directory);
+    }
+
+    /**
+     * 尽量删除文件；仍被映射的文件在某些系统上无法立即删除，留到虚拟机退出时删除
+     */
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * 段文件的顺序写入：FileChannel + 直接内存缓冲区
+     */
+    private static final class RunWriter implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        RunWriter(Path file) throws IOException {
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+
+        void write(long high, long low) throws IOException {
+            if (buffer.remaining() < KEY_BYTES) {
+                flush();
+            }
+            buffer.putLong(high).putLong(low);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * 一个有序段，按块只读映射
+     */
+    private static final class Run {
+        private final Path file;
+        private final long count;
+        private final int level;    // 归并的层数，热层直接写出的段为 0
+        private final MappedByteBuffer[] blocks;
+
+        Run(Path file, long count, int level) throws IOException {
+            this.file = file;
+            this.count = count;
+            this.level = level;
+            this.blocks = new MappedByteBuffer[(int) ((count + BLOCK_MASK) >>> BLOCK_SHIFT)];
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (int i = 0; i < blocks.length; i++) {
+                    long start = ((long) i << BLOCK_SHIFT) * KEY_BYTES;
+                    long length = Math.min(count * KEY_BYTES - start, (BLOCK_MASK + 1) * KEY_BYTES);
+                    blocks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                }
+            }
+        }
+
+        long high(long index) {
+            return blocks[(int) (index >>> BLOCK_SHIFT)].getLong((int) (index & BLOCK_MASK) * KEY_BYTES);
+        }
+
+        long low(long index) {
+            return blocks[(int) (index >>> BLOCK_SHIFT)].getLong((int) (index & BLOCK_MASK) * KEY_BYTES + 8);
+        }
+
+        boolean contains(long high, long low) {
+            long left = 0;
+            long right = count - 1;
+            while (left <= right) {
+                long middle = (left + right) >>> 1;
+                int c = LongPairs.compare(high(middle), low(middle), high, low);
+                if (c < 0) {
+                    left = middle + 1;
+                } else if (c > 0) {
+                    right = middle - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
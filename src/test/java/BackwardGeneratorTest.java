@@ -0,0 +1,63 @@
+import com.mathgenerator.generator.BackwardGenerator;
+import com.mathgenerator.generator.ExpressionGenerator.ExpressionResult;
+import com.mathgenerator.generator.ParallelGenerator;
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.service.ExpressionEvaluator;
+import com.mathgenerator.service.ExpressionNormalizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @date: 2025/04/06
+ * @description: 测试从指定答案倒推生成题目
+ */
+public class BackwardGeneratorTest {
+    @Test
+    public void testGenerateWithAnswer() {
+        BackwardGenerator generator = new BackwardGenerator(9, new SplittableRandom(1));
+        ExpressionNormalizer normalizer = new ExpressionNormalizer();
+        for (String text : new String[]{"1", "1/2", "5", "7/9", "1/8"}) {
+            Fraction answer = new Fraction(text);
+            assertTrue(generator.canReach(answer), text);
+            for (int i = 0; i < 1000; i++) {
+                ExpressionResult result = generator.generateExpression(answer);
+                assertEquals(answer, result.getResult());
+                // 按优先级求值的结果与倒推时的答案一致
+                assertEquals(answer, ExpressionEvaluator.evaluate(result.getExpression()), result.getExpression());
+                // 标准化原地调整树之后，题目文本随树一起变化
+                String normalized = normalizer.normalize(result.getTree());
+                assertEquals(normalized, result.getExpression());
+            }
+        }
+        // 减法结果必须为正，乘法结果不能超过范围
+        assertFalse(generator.canReach(new Fraction("0")));
+        assertFalse(generator.canReach(new Fraction("81")));
+        assertThrows(IllegalArgumentException.class, () -> generator.generateExpression(new Fraction("81")));
+    }
+
+    @Test
+    public void testAnswersSpreadEvenly() {
+        List<Fraction> answers = Arrays.asList(new Fraction("1/2"), new Fraction("3"), new Fraction("1/3"));
+        for (int threads : new int[]{1, 4}) {
+            ParallelGenerator generator = new ParallelGenerator(9, threads);
+            generator.setAnswers(answers);
+            Map<String, Fraction> expressions = generator.generate(3001);
+            assertEquals(3001, expressions.size());
+            Map<Fraction, Integer> counts = new HashMap<>();
+            expressions.values().forEach(answer -> counts.merge(answer, 1, Integer::sum));
+            assertEquals(1001, counts.get(answers.get(0)));
+            assertEquals(1000, counts.get(answers.get(1)));
+            assertEquals(1000, counts.get(answers.get(2)));
+        }
+    }
+}
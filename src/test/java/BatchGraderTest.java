@@ -0,0 +1,79 @@
+import com.mathgenerator.handler.BatchGrader;
+import com.mathgenerator.handler.FileHandler;
+import com.mathgenerator.handler.GradeReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @date: 2025/04/01
+ * @description: 测试批量批改与单独批改结果一致
+ */
+public class BatchGraderTest {
+    @Test
+    public void testSameAsSingleGrading(@TempDir Path dir) throws IOException {
+        Path exerciseFile = dir.resolve("e.txt");
+        Files.write(exerciseFile, ("题目1: 1 + 2 =\n"
+                + "题目2: 3 × 4 ÷ 6 =\n"
+                + "题目3: 2147483647 × 2 =\n"
+                + "题目4: 2 ÷ (1 - 1) =\n"
+                + "题目5: 1/2 + 1/3 =\n").getBytes(StandardCharsets.UTF_8));
+        Path first = write(dir, "a1.txt", "答案1: 3\n答案2: 2\n答案3: 4294967294\n答案4: 0\n答案5: 5/6\n");
+        Path second = write(dir, "a2.txt", "答案5: 5/6\n答案1: 4\n答案3: 4294967294\n");
+        List<String> answerFiles = Arrays.asList(first.toString(), second.toString(), dir.resolve("none.txt").toString());
+
+        for (boolean byIndex : new boolean[]{false, true}) {
+            Path gradeDir = dir.resolve(byIndex ? "byIndex" : "byLine");
+            List<GradeReport> reports = new BatchGrader(exerciseFile.toString())
+                    .gradeAll(answerFiles, gradeDir.toString(), 2, false, byIndex);
+            assertNull(reports.get(2));
+            for (Path answerFile : new Path[]{first, second}) {
+                Path single = dir.resolve("single.txt");
+                if (byIndex) {
+                    FileHandler.gradeAnswersByIndex(exerciseFile.toString(), answerFile.toString(), single.toString(), 1, false);
+                } else {
+                    FileHandler.gradeAnswers(exerciseFile.toString(), answerFile.toString(), single.toString());
+                }
+                assertArrayEquals(Files.readAllBytes(single),
+                        Files.readAllBytes(gradeDir.resolve(BatchGrader.GRADE_PREFIX + answerFile.getFileName())));
+            }
+        }
+        List<String> summary = Files.readAllLines(dir.resolve("byIndex").resolve(BatchGrader.SUMMARY_FILE), StandardCharsets.UTF_8);
+        assertEquals(4, summary.size());
+        assertEquals(first + ": Correct 3, Wrong 2, Missing 0", summary.get(0));
+        assertEquals(second + ": Correct 1, Wrong 2, Missing 2", summary.get(1));
+        assertEquals("Total: 3 submissions, Correct 4, Wrong 4, Missing 2", summary.get(3));
+    }
+
+    @Test
+    public void testDuplicateNamesRejected(@TempDir Path dir) throws IOException {
+        Path exerciseFile = write(dir, "e.txt", "题目1: 1 + 2 =\n");
+        Files.createDirectories(dir.resolve("x"));
+        Files.createDirectories(dir.resolve("y"));
+        Path first = write(dir.resolve("x"), "a.txt", "答案1: 3\n");
+        Path second = write(dir.resolve("y"), "a.txt", "答案1: 4\n");
+        Path gradeDir = dir.resolve("grades");
+        // 两份答案都会写到 Grade_a.txt，批改前拒绝，不写出任何文件
+        assertThrows(IllegalArgumentException.class, () -> new BatchGrader(exerciseFile.toString())
+                .gradeAll(Arrays.asList(first.toString(), second.toString()), gradeDir.toString(), 2, false, false));
+        assertFalse(Files.exists(gradeDir));
+    }
+
+    private static Path write(Path dir, String name, String content) throws IOException {
+        Path file = dir.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,46 @@
+import com.mathgenerator.generator.ParallelGenerator;
+import com.mathgenerator.util.BloomFilter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @date: 2025/04/03
+ * @description: 测试去重前的布隆过滤器
+ */
+public class BloomFilterTest {
+    @Test
+    public void testPutAndMightContain() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (long i = 0; i < 10000; i++) {
+            filter.put(i * 0x9E3779B97F4A7C15L, i * 0xC2B2AE3D27D4EB4FL + 1);
+        }
+        for (long i = 0; i < 10000; i++) {
+            // 插入过的键一定能查到
+            assertTrue(filter.mightContain(i * 0x9E3779B97F4A7C15L, i * 0xC2B2AE3D27D4EB4FL + 1));
+            // 同一个键再次插入时不会判定为新键
+            assertFalse(filter.put(i * 0x9E3779B97F4A7C15L, i * 0xC2B2AE3D27D4EB4FL + 1));
+        }
+        assertEquals(20000, filter.getPuts());
+    }
+
+    @Test
+    public void testGenerateWithBloomFilter() throws IOException {
+        for (int threads : new int[]{1, 4}) {
+            ParallelGenerator generator = new ParallelGenerator(10, threads);
+            generator.enableBloomFilter(0.01);
+            Set<String> seen = new HashSet<>();
+            generator.generate(3000, (expression, result) -> assertTrue(seen.add(expression), expression));
+            assertEquals(3000, generator.generate(3000).size());
+            assertEquals(3000, seen.size());
+            assertNotNull(generator.getBloomFilter());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import com.mathgenerator.generator.ExpressionEnumerator;
+import com.mathgenerator.generator.ParallelGenerator;
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.service.ExpressionEvaluator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @date: 2025/04/05
+ * @description: 测试穷举全部题目
+ */
+public class ExpressionEnumeratorTest {
+    @Test
+    public void testRandomProblemsAreEnumerated() {
+        ExpressionEnumerator enumerator = new ExpressionEnumerator(3);
+        Set<String> all = new HashSet<>();
+        for (int i = 0; i < enumerator.size(); i++) {
+            assertTrue(all.add(enumerator.get(i).getExpression()));
+        }
+        // 随机生成的题目都在穷举的范围内
+        Map<String, Fraction> generated = new ParallelGenerator(3, 1).generate(2000);
+        for (String expression : generated.keySet()) {
+            assertTrue(all.contains(expression), expression);
+        }
+    }
+
+    @Test
+    public void testEnumeratedProblemsAreGenerated() {
+        // 范围为 2 时随机生成可以得到全部题目：穷举的每道题都是生成规则允许的，两者完全一致
+        ExpressionEnumerator enumerator = new ExpressionEnumerator(2);
+        Set<String> all = new HashSet<>();
+        for (int i = 0; i < enumerator.size(); i++) {
+            all.add(enumerator.get(i).getExpression());
+        }
+        ParallelGenerator generator = new ParallelGenerator(2, 1);
+        generator.setSeed(1);
+        Set<String> generated = assertTimeoutPreemptively(Duration.ofSeconds(60),
+                () -> generator.generate(enumerator.size()).keySet());
+        assertEquals(all, generated);
+    }
+
+    @Test
+    public void testSampleWithoutReplacement() throws IOException {
+        ExpressionEnumerator enumerator = new ExpressionEnumerator(2);
+        Set<String> seen = new HashSet<>();
+        // 抽取全部题目，每道都不重复
+        enumerator.sample(enumerator.size(), new SplittableRandom(1), (expression, result) -> {
+            assertTrue(seen.add(expression), expression);
+            assertEquals(ExpressionEvaluator.evaluate(expression), result, expression);
+        });
+        assertEquals(enumerator.size(), seen.size());
+        assertThrows(IllegalArgumentException.class,
+                () -> enumerator.sample(enumerator.size() + 1, new SplittableRandom(1), (expression, result) -> { }));
+    }
+}
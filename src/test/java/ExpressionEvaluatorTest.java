@@ -0,0 +1,54 @@
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.service.CompiledExpression;
+import com.mathgenerator.service.ExpressionEvaluator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @date: 2025/03/24
+ * @description: 测试表达式计算
+ */
+public class ExpressionEvaluatorTest {
+    @Test
+    public void testEvaluate() {
+        assertEquals(new Fraction(21, 1), ExpressionEvaluator.evaluate("(5 + 6) × 2 - 1"));
+        assertEquals(new Fraction(3, 10), ExpressionEvaluator.evaluate("2/5 ÷ 8 × 6 ="));
+        assertEquals(new Fraction(7, 4), ExpressionEvaluator.evaluate("1'1/2 + 2/8"));
+        assertEquals(new Fraction(1, 1), ExpressionEvaluator.evaluate("8 - ( 3 + 4 )"));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionEvaluator.evaluate("1 ÷ (2 - 2)"));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionEvaluator.evaluate("1 +"));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionEvaluator.evaluate("(1 + 2"));
+    }
+
+    @Test
+    public void testOverflowFallsBackToBigInteger() {
+        Fraction result = ExpressionEvaluator.evaluate("65536 × 65536 × 65536 ÷ 65536 ÷ 65536");
+        assertEquals(new Fraction(65536, 1), result);
+    }
+
+    @Test
+    public void testCompiledExpressionIsReusable() {
+        CompiledExpression compiled = ExpressionEvaluator.compile("3/4 + 1/4 × 2");
+        assertEquals(new Fraction(5, 4), compiled.evaluate());
+        assertEquals(new Fraction(5, 4), compiled.evaluate());
+    }
+
+    @Test
+    public void testSampleExercises() throws IOException {
+        List<String> exercises = Files.readAllLines(Paths.get("src/main/resources/Exercises.txt"), StandardCharsets.UTF_8);
+        List<String> answers = Files.readAllLines(Paths.get("src/main/resources/Answer.txt"), StandardCharsets.UTF_8);
+        for (int i = 0; i < exercises.size(); i++) {
+            String expression = exercises.get(i).split(":")[1];
+            String answer = answers.get(i).split(":")[1].trim();
+            assertEquals(new Fraction(answer), ExpressionEvaluator.evaluate(expression), exercises.get(i));
+        }
+    }
+}
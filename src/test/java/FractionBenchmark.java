@@ -0,0 +1,48 @@
+import com.mathgenerator.model.Fraction;
+
+/**
+ * @date: 2025/03/21
+ * @description: 分数运算快速路径的简单基准测试（不随 mvn test 运行）
+ * 运行方式：mvn test-compile 后执行
+ * java -cp target/classes:target/test-classes FractionBenchmark
+ */
+public class FractionBenchmark {
+    private static final int OPERATIONS = 20_000_000;
+
+    public static void main(String[] args) {
+        Fraction[] operands = new Fraction[64];
+        for (int i = 0; i < operands.length; i++) {
+            operands[i] = new Fraction(i % 9 + 1, i % 7 + 2);
+        }
+        // 预热，让 JIT 编译热点方法
+        for (int round = 0; round < 5; round++) {
+            run(operands);
+        }
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            int checksum = run(operands);
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            if (checksum == 42) {
+                System.out.println();
+            }
+        }
+        System.out.printf("add/subtract/multiply/divide/compareTo: %.2f ns/op%n", (double) best / OPERATIONS);
+    }
+
+    private static int run(Fraction[] operands) {
+        int checksum = 0;
+        int mask = operands.length - 1;
+        for (int i = 0; i < OPERATIONS; i += 5) {
+            Fraction a = operands[i & mask];
+            Fraction b = operands[(i >>> 6) & mask];
+            checksum += a.add(b).getNumerator();
+            checksum += a.subtract(b).getDenominator();
+            checksum += a.multiply(b).getNumerator();
+            checksum += a.divide(b).getDenominator();
+            checksum += a.compareTo(b);
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,47 @@
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.model.FractionMath;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @date: 2025/03/20
+ * @description: 测试打包分数运算内核
+ */
+public class FractionMathTest {
+    @Test
+    public void testArithmeticMatchesFraction() {
+        String[] values = {"1", "7", "3/4", "2'3/8", "5/9", "1'1/2"};
+        for (String x : values) {
+            for (String y : values) {
+                Fraction a = new Fraction(x);
+                Fraction b = new Fraction(y);
+                long pa = FractionMath.parse(x);
+                long pb = FractionMath.parse(y);
+                assertEquals(a.add(b), Fraction.valueOf(FractionMath.add(pa, pb)));
+                assertEquals(a.subtract(b), Fraction.valueOf(FractionMath.subtract(pa, pb)));
+                assertEquals(a.multiply(b), Fraction.valueOf(FractionMath.multiply(pa, pb)));
+                assertEquals(a.divide(b), Fraction.valueOf(FractionMath.divide(pa, pb)));
+                assertEquals(Integer.signum(a.compareTo(b)), Integer.signum(FractionMath.compare(pa, pb)));
+            }
+        }
+    }
+
+    @Test
+    public void testGcd() {
+        assertEquals(6, FractionMath.gcd(48, 18));
+        assertEquals(7, FractionMath.gcd(0, 7));
+        assertEquals(1, FractionMath.gcd(0, 0));
+        assertEquals(1, FractionMath.gcd(17, 31));
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(FractionMath.pack(19, 8), FractionMath.parse("2'3/8"));
+        assertEquals(FractionMath.pack(1, 2), FractionMath.parse("2/4"));
+        assertEquals(FractionMath.pack(5, 1), FractionMath.parse("5"));
+        assertThrows(NumberFormatException.class, () -> FractionMath.parse("1'2"));
+        assertThrows(ArithmeticException.class, () -> FractionMath.multiply(FractionMath.pack(Integer.MAX_VALUE, 1), FractionMath.pack(2, 1)));
+    }
+}
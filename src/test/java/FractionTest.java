@@ -0,0 +1,78 @@
+import com.mathgenerator.model.Fraction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @date: 2025/03/21
+ * @description: 测试分数运算的溢出处理
+ */
+public class FractionTest {
+    @Test
+    public void testSmallValuesStayCompact() {
+        Fraction result = new Fraction("2'3/8").add(new Fraction("5/8"));
+        assertEquals(new Fraction(3, 1), result);
+        assertFalse(result.isBig());
+    }
+
+    @Test
+    public void testOverflowPromotesToBigInteger() {
+        Fraction large = new Fraction(Integer.MAX_VALUE, 1);
+        Fraction product = large.multiply(large);
+        assertTrue(product.isBig());
+        assertEquals(BigInteger.valueOf(Integer.MAX_VALUE).pow(2), product.getBigNumerator());
+        assertThrows(ArithmeticException.class, product::getNumerator);
+
+        // 回到 int 范围后降级为 int 表示
+        Fraction back = product.divide(large);
+        assertFalse(back.isBig());
+        assertEquals(large, back);
+    }
+
+    @Test
+    public void testChainedDivisionIsExact() {
+        Fraction value = new Fraction(1, 1);
+        for (int i = 2; i < 40; i++) {
+            value = value.divide(new Fraction(i, 1));
+        }
+        for (int i = 2; i < 40; i++) {
+            value = value.multiply(new Fraction(i, 1));
+        }
+        assertEquals(new Fraction(1, 1), value);
+    }
+
+    @Test
+    public void testCompareAndFormatBigValues() {
+        Fraction big = new Fraction(Integer.MAX_VALUE, 1).multiply(new Fraction(4, 1)).add(new Fraction(1, 2));
+        assertEquals("8589934588'1/2", big.toString());
+        assertTrue(big.compareTo(new Fraction(Integer.MAX_VALUE, 1)) > 0);
+        assertEquals(-1, new Fraction(Integer.MIN_VALUE, 1).subtract(big).signum());
+    }
+
+    @Test
+    public void testHashCodeAndComparable() {
+        Set<Fraction> values = new HashSet<>();
+        values.add(new Fraction("2/4"));
+        values.add(new Fraction(1, 2));
+        values.add(new Fraction(-3, -6));
+        assertEquals(1, values.size());
+
+        Fraction big = new Fraction(Integer.MAX_VALUE, 1).multiply(new Fraction(3, 1));
+        assertEquals(big.hashCode(), new Fraction(Integer.MAX_VALUE, 1).add(big).subtract(new Fraction(Integer.MAX_VALUE, 1)).hashCode());
+
+        List<Fraction> sorted = new ArrayList<>(Arrays.asList(new Fraction("2'1/2"), new Fraction("3/4"), big, new Fraction("1")));
+        Collections.sort(sorted);
+        assertEquals(Arrays.asList(new Fraction("3/4"), new Fraction("1"), new Fraction("2'1/2"), big), sorted);
+    }
+}
@@ -0,0 +1,69 @@
+import com.mathgenerator.handler.GradeReport;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @date: 2025/03/30
+ * @description: 测试批改报告
+ */
+public class GradeReportTest {
+    @Test
+    public void testListAndRanges() throws IOException {
+        GradeReport report = new GradeReport();
+        for (int i = 1; i <= 10; i++) {
+            report.add(i, i != 4 && i != 8 && i != 9);
+        }
+        GradeReport tail = new GradeReport();
+        tail.add(11, true);
+        report.merge(tail);
+
+        StringWriter list = new StringWriter();
+        report.writeTo(list, false);
+        assertEquals("Correct: 8 (1, 2, 3, 5, 6, 7, 10, 11)\nWrong: 3 (4, 8, 9)\n", list.toString());
+
+        StringWriter ranges = new StringWriter();
+        report.writeTo(ranges, true);
+        assertEquals("Correct: 8 (1-3, 5-7, 10-11)\nWrong: 3 (4, 8-9)\n", ranges.toString());
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        GradeReport report = new GradeReport();
+        report.add(1, true);
+        StringWriter writer = new StringWriter();
+        report.writeTo(writer, true);
+        assertEquals("Correct: 1 (1)\nWrong: 0\n", writer.toString());
+    }
+
+    @Test
+    public void testSparseAndOutOfOrder() throws IOException {
+        GradeReport report = new GradeReport(true);
+        // 很大的题号只占一个区间，不按题号分配内存
+        report.add(2000000000, true);
+        report.add(Integer.MAX_VALUE, true);
+        report.add(5, false);
+        GradeReport head = new GradeReport(true);
+        head.add(1, true);
+        head.add(3, true);
+        head.add(2, true);
+        head.addMissing(4);
+        report.merge(head);
+        assertTrue(report.isCorrect(2));
+        assertTrue(report.isCorrect(Integer.MAX_VALUE));
+        assertFalse(report.isCorrect(5));
+        assertFalse(report.isCorrect(1999999999));
+
+        StringWriter ranges = new StringWriter();
+        report.writeTo(ranges, true);
+        assertEquals("Correct: 5 (1-3, 2000000000, 2147483647)\nWrong: 1 (5)\nMissing: 1 (4)\n", ranges.toString());
+        StringWriter list = new StringWriter();
+        report.writeTo(list, false);
+        assertEquals("Correct: 5 (1, 2, 3, 2000000000, 2147483647)\nWrong: 1 (5)\nMissing: 1 (4)\n", list.toString());
+    }
+}
@@ -0,0 +1,27 @@
+import com.mathgenerator.util.IntLongHashMap;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @date: 2025/03/31
+ * @description: 测试 int -> long 哈希表
+ */
+public class IntLongHashMapTest {
+    @Test
+    public void testPutAndGet() {
+        IntLongHashMap map = new IntLongHashMap(4);
+        for (int i = 0; i < 100000; i++) {
+            assertTrue(map.putIfAbsent(i * 3, i));
+        }
+        assertFalse(map.putIfAbsent(3, -5L));
+        assertEquals(100000, map.size());
+        for (int i = 0; i < 100000; i++) {
+            assertEquals(i, map.get(i * 3, -1L));
+            assertFalse(map.containsKey(i * 3 + 1));
+        }
+        assertEquals(-1L, map.get(-3, -1L));
+    }
+}
@@ -0,0 +1,40 @@
+import com.mathgenerator.util.LongObjectHashMap;
+import com.mathgenerator.util.LongPairHashSet;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @date: 2025/04/02
+ * @description: 测试去重用的 long 哈希集合和哈希表
+ */
+public class LongPairHashSetTest {
+    @Test
+    public void testAddAndContains() {
+        LongPairHashSet set = new LongPairHashSet(4);
+        for (long i = 0; i < 100000; i++) {
+            // 低 64 位相同、高 64 位不同的键也要区分
+            assertTrue(set.add(i, i & 7));
+        }
+        assertTrue(set.contains(0, 0));
+        assertFalse(set.add(0, 0));
+        assertFalse(set.add(99999, 99999 & 7));
+        assertFalse(set.contains(1, 2));
+        assertEquals(100000, set.size());
+    }
+
+    @Test
+    public void testPutIfAbsent() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>(4);
+        for (long i = 0; i < 100000; i++) {
+            assertNull(map.putIfAbsent(i << 40, "v" + i));
+        }
+        assertEquals("v3", map.putIfAbsent(3L << 40, "x"));
+        assertEquals("v0", map.get(0));
+        assertNull(map.get(1));
+        assertEquals(100000, map.size());
+    }
+}
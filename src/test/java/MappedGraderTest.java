@@ -0,0 +1,97 @@
+import com.mathgenerator.handler.FileHandler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @date: 2025/03/29
+ * @description: 测试内存映射批改与逐行批改结果一致
+ */
+public class MappedGraderTest {
+    @Test
+    public void testSampleFiles(@TempDir Path dir) throws IOException {
+        assertSameGrades(Paths.get("src/main/resources/Exercises.txt"), Paths.get("src/main/resources/Answer.txt"), dir);
+    }
+
+    @Test
+    public void testMalformedLines(@TempDir Path dir) throws IOException {
+        String exercises = "题目1: 1 + 2 =\n"
+                + "题目2: 3 × 4 ÷ 6 =\r\n"
+                + "题目3: (1/2 + 1'1/3) × 2 =\n"
+                + "题目4: 1 - 1 =\n"
+                + "题目5: 2 ÷ (1 - 1) =\n"
+                + "第 6 题: 3 + 4 =\n"
+                + "题目7 1 + 1 =\n"
+                + "题目8: 1 + 2\n"
+                + "题目9: 5 - 2 =\n"
+                + "题目10:  :\n"
+                + "题目11: 4/6 × 3 =\n"
+                + "题目12: 2147483647 × 2 =\n";
+        String answers = "答案1: 3\n"
+                + "答案2: 2\r\n"
+                + "答案3: 3'2/3\n"
+                + "答案4: -0\n"
+                + "答案5: 0\n"
+                + "答案6: 7\n"
+                + "答案7: 2\n"
+                + "答案8: 3\n"
+                + "答案9: 3/4/5\n"
+                + "答案10: 1\n"
+                + "答案11: 2/1\n"
+                + "答案12: 4294967294";
+        Path exerciseFile = dir.resolve("e.txt");
+        Path answerFile = dir.resolve("a.txt");
+        Files.write(exerciseFile, exercises.getBytes(StandardCharsets.UTF_8));
+        Files.write(answerFile, answers.getBytes(StandardCharsets.UTF_8));
+        assertSameGrades(exerciseFile, answerFile, dir);
+    }
+
+    @Test
+    public void testGradeByIndex(@TempDir Path dir) throws IOException {
+        String exercises = "题目1: 1 + 2 =\n"
+                + "题目2: 3 × 4 ÷ 6 =\n"
+                + "题目3: 1/2 + 1/3 =\n"
+                + "\n"
+                + "题目4: 5 - 2 =\n"
+                + "题目5: 2 × 2 =\n";
+        // 乱序、缺少第 3 题、第 4 题重复（以第一行为准）、多出第 9 题
+        String answers = "答案5: 4\n"
+                + "答案1: 3\n"
+                + "答案4: 1\n"
+                + "答案4: 3\n"
+                + "答案2: 2\n"
+                + "答案9: 1\n";
+        Path exerciseFile = dir.resolve("e.txt");
+        Path answerFile = dir.resolve("a.txt");
+        Files.write(exerciseFile, exercises.getBytes(StandardCharsets.UTF_8));
+        Files.write(answerFile, answers.getBytes(StandardCharsets.UTF_8));
+
+        for (int threads : new int[]{1, 4}) {
+            Path grade = dir.resolve("grade" + threads + ".txt");
+            FileHandler.gradeAnswersByIndex(exerciseFile.toString(), answerFile.toString(), grade.toString(), threads, false);
+            assertEquals("Correct: 3 (1, 2, 5)\nWrong: 1 (4)\nMissing: 1 (3)\n",
+                    new String(Files.readAllBytes(grade), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void assertSameGrades(Path exerciseFile, Path answerFile, Path dir) throws IOException {
+        Path mapped = dir.resolve("mapped.txt");
+        Path byLine = dir.resolve("byLine.txt");
+        FileHandler.gradeAnswers(exerciseFile.toString(), answerFile.toString(), mapped.toString());
+        FileHandler.gradeAnswersByLine(exerciseFile.toString(), answerFile.toString(), byLine.toString(), false);
+        assertEquals(new String(Files.readAllBytes(byLine), StandardCharsets.UTF_8),
+                new String(Files.readAllBytes(mapped), StandardCharsets.UTF_8));
+
+        Path parallel = dir.resolve("parallel.txt");
+        FileHandler.gradeAnswers(exerciseFile.toString(), answerFile.toString(), parallel.toString(), 4, false);
+        assertEquals(new String(Files.readAllBytes(byLine), StandardCharsets.UTF_8),
+                new String(Files.readAllBytes(parallel), StandardCharsets.UTF_8));
+    }
+}
@@ -1,8 +1,17 @@
+import com.mathgenerator.generator.ParallelGenerator;
+import com.mathgenerator.model.ExpressionNode;
+import com.mathgenerator.model.Fingerprint;
 import com.mathgenerator.service.ExpressionNormalizer;
+import com.mathgenerator.service.TokenStream;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 /**
  * @author: YiLaiL
  * @date: 2025/03/13
@@ -33,4 +42,102 @@ public class NomalizerTest {
         String normalizeExpression2 = normalizer.normalizeExpression(expression);
         System.out.println(normalizeExpression2);*/
     }
+
+    @Test
+    public void testNormalizeTokenStream() {
+        String expression = "5 + 4 + ( 3 + 2 ) × 4 =";
+        TokenStream tokens = normalizer.tokenize(expression);
+        assertEquals(11, tokens.size());
+        assertEquals("4 + 5 + 4 × (2 + 3)", normalizer.normalize(tokens));
+        assertEquals(normalizer.normalizeExpression(expression), normalizer.normalize(tokens));
+        assertEquals("2 × (5 + 6) - 1", normalizer.normalizeExpression("(5 + 6) × 2 - 1"));
+        assertEquals("1'1/3 + 2'1/2", normalizer.normalizeExpression("2'1/2 + 1'1/3"));
+    }
+
+    @Test
+    public void testOrderByExactValue() {
+        // 按精确值从小到大排列，整数和分数都参与比较
+        assertEquals("1 + 2", normalizer.normalizeExpression("2 + 1 ="));
+        assertEquals("1/3 × 1/2", normalizer.normalizeExpression("1/2 × 1/3 ="));
+        assertEquals("1 + 3 × 4", normalizer.normalizeExpression("4 × 3 + 1 ="));
+        // 值相等时按结构区分，交换前后的两种写法得到同一个结果
+        assertEquals(normalizer.normalizeExpression("( 2 + 4 ) + ( 1 + 5 ) ="),
+                normalizer.normalizeExpression("( 5 + 1 ) + ( 4 + 2 ) ="));
+        assertEquals(normalizer.normalizeExpression("2/4 + 1/2 ="), normalizer.normalizeExpression("1/2 + 2/4 ="));
+    }
+
+    @Test
+    public void testFlattenAssociativeChains() {
+        assertEquals("1 + 2 + 3", normalizer.normalizeExpression("3 + 2 + 1 ="));
+        assertEquals("1 + 2 + 3", normalizer.normalizeExpression("3 + ( 1 + 2 ) ="));
+        assertEquals("1 × 2 × 3", normalizer.normalizeExpression("2 × ( 3 × 1 ) ="));
+        assertEquals(normalizer.normalizeExpression("3 + 1 + 2 ="), normalizer.normalizeExpression("2 + 1 + 3 ="));
+        // - 和 ÷ 不参与重排，只标准化其左右子树
+        assertEquals("1 + 2 - 3", normalizer.normalizeExpression("2 + 1 - 3 ="));
+        assertEquals("6 ÷ (1 × 2 × 3)", normalizer.normalizeExpression("6 ÷ ( 3 × 2 × 1 ) ="));
+        assertEquals("1 + 1/2 × 3 + 4", normalizer.normalizeExpression("4 + 3 × 1/2 + 1 ="));
+    }
+
+    @Test
+    public void testEquivalent() {
+        assertTrue(normalizer.equivalent(tree("1 + ( 3 + 2 ) ="), tree("2 + 3 + 1 =")));
+        assertTrue(normalizer.equivalent(tree("2 × 3 + 4 ="), tree("4 + 3 × 2 =")));
+        assertFalse(normalizer.equivalent(tree("3 - 2 ="), tree("2 - 3 =")));
+        assertFalse(normalizer.equivalent(tree("1/2 + 1 ="), tree("2/4 + 1 =")));
+        assertFalse(normalizer.equivalent(tree("1 + 2 × 3 ="), tree("( 1 + 2 ) × 3 =")));
+    }
+
+    @Test
+    public void testParenthesesKeepEvaluationOrder() {
+        // 作为 - ÷ 右操作数的同级子表达式必须保留括号
+        assertEquals("8 - (3 + 4)", normalizer.normalizeExpression("8 - ( 3 + 4 ) ="));
+        assertEquals("8 ÷ (2 × 4)", normalizer.normalizeExpression("8 ÷ ( 2 × 4 ) ="));
+        // 不改变运算顺序的括号会被去掉
+        assertEquals("1 + 2 + 3", normalizer.normalizeExpression("( 1 + 2 ) + 3 ="));
+    }
+
+    @Test
+    public void testFingerprintFollowsNormalizedText() {
+        String[][] same = {{"1 + ( 2 + 3 ) =", "( 1 + 2 ) + 3 ="}, {"2 × ( 1 + 3 ) =", "( 1 + 3 ) × 2 ="}};
+        for (String[] pair : same) {
+            assertEquals(normalizer.normalizeExpression(pair[0]), normalizer.normalizeExpression(pair[1]));
+            Fingerprint a = fingerprint(pair[0]);
+            Fingerprint b = fingerprint(pair[1]);
+            assertEquals(a.low(), b.low());
+            assertEquals(a.high(), b.high());
+        }
+        // 值相同但写法不同的题目不算重复
+        assertNotEquals(fingerprint("1 - 2 =").low(), fingerprint("1 + 2 =").low());
+        assertNotEquals(fingerprint("2/4 + 1 =").low(), fingerprint("1/2 + 1 =").low());
+        assertNotEquals(fingerprint("8 - ( 3 + 4 ) =").low(), fingerprint("8 - 3 + 4 =").low());
+    }
+
+    @Test
+    public void testNormalizedTextIsFixedPoint() {
+        // 同级的右操作数必须带括号，否则重新解析得到另一棵树
+        assertEquals("3 × (2 ÷ 1/2)", normalizer.normalizeExpression("3 × ( 2 ÷ 1/2 ) ="));
+        assertEquals("1 + 2 + (7 - 1)", normalizer.normalizeExpression("2 + 1 + ( 7 - 1 ) ="));
+        assertEquals("1 + 2 + 7 - 1", normalizer.normalizeExpression("2 + 1 + 7 - 1 ="));
+        // 生成的题库中每道题再标准化一次结果不变，文本指纹与树的指纹相同
+        for (int range : new int[]{4, 9}) {
+            ParallelGenerator generator = new ParallelGenerator(range, 1);
+            generator.setSeed(1);
+            for (String expression : generator.generate(20000).keySet()) {
+                assertEquals(expression, normalizer.normalizeExpression(expression));
+                Fingerprint text = new Fingerprint().append(expression);
+                Fingerprint tree = fingerprint(expression);
+                assertEquals(text.high(), tree.high(), expression);
+                assertEquals(text.low(), tree.low(), expression);
+            }
+        }
+    }
+
+    private Fingerprint fingerprint(String expression) {
+        return normalizer.fingerprint(tree(expression), new Fingerprint());
+    }
+
+    private ExpressionNode tree(String expression) {
+        TokenStream tokens = normalizer.tokenize(expression);
+        return normalizer.buildExpressionTree(tokens, normalizer.shuntingYard(tokens));
+    }
 }
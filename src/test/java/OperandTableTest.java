@@ -0,0 +1,43 @@
+import com.mathgenerator.generator.OperandTable;
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.model.Operand;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @date: 2025/03/22
+ * @description: 测试操作数表
+ */
+public class OperandTableTest {
+    @Test
+    public void testOperandsAreInterned() {
+        OperandTable table = OperandTable.forRange(10);
+        assertSame(table, OperandTable.forRange(10));
+        assertEquals(9, table.integerCount());
+        assertEquals(64, table.fractionCount());
+
+        Set<String> texts = new HashSet<>();
+        for (int i = 0; i < table.size(); i++) {
+            Operand operand = table.get(i);
+            assertEquals(i, operand.getIndex());
+            assertTrue(texts.add(operand.getText()));
+            assertEquals(new Fraction(operand.getText()), operand.getValue());
+        }
+        // 7/2 按原规则限制整数部分为 2
+        assertTrue(texts.contains("2'1/2"));
+        assertTrue(texts.contains("2/4"));
+    }
+
+    @Test
+    public void testSmallRange() {
+        OperandTable table = OperandTable.forRange(1);
+        assertEquals(1, table.integerCount());
+        assertEquals(0, table.fractionCount());
+    }
+}
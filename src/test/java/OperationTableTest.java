@@ -0,0 +1,80 @@
+import com.mathgenerator.generator.ExpressionGenerator;
+import com.mathgenerator.generator.OperandTable;
+import com.mathgenerator.generator.OperationTable;
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.model.Operand;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @date: 2025/03/23
+ * @description: 测试运算表
+ */
+public class OperationTableTest {
+    @Test
+    public void testEntriesMatchArithmetic() {
+        int range = 10;
+        OperandTable operands = OperandTable.forRange(range);
+        OperationTable table = OperationTable.forRange(range);
+        ExpressionGenerator generator = new ExpressionGenerator(range);
+        int accepted = 0;
+        for (int a = 0; a < operands.size(); a++) {
+            Operand left = operands.get(a);
+            for (int op = 0; op < 4; op++) {
+                for (int b = 0; b < operands.size(); b++) {
+                    Operand right = operands.get(b);
+                    int result = table.apply(table.valueOf(left), op, right);
+                    if (result == OperationTable.REJECTED) {
+                        continue;
+                    }
+                    accepted++;
+                    Fraction expected = apply(left.getValue(), op, right.getValue());
+                    assertEquals(expected, table.value(result));
+                    assertTrue(generator.isValidResult(expected));
+                }
+            }
+        }
+        assertTrue(accepted > 0);
+    }
+
+    @Test
+    public void testGeneratorRules() {
+        OperandTable operands = OperandTable.forRange(10);
+        OperationTable table = OperationTable.forRange(10);
+        Operand one = find(operands, "1");
+        Operand half = find(operands, "1/2");
+        Operand three = find(operands, "3");
+        // 被减数必须大于减数
+        assertEquals(OperationTable.REJECTED, table.apply(table.valueOf(one), 1, three));
+        // 不允许两个分数相乘
+        assertEquals(OperationTable.REJECTED, table.apply(table.valueOf(half), 2, half));
+        assertEquals(new Fraction(3, 2), half.getValue().multiply(three.getValue()));
+        // 结果必须是真分数或整数
+        assertEquals(OperationTable.REJECTED, table.apply(table.valueOf(half), 2, three));
+        assertEquals(new Fraction(3, 4), table.value(table.apply(table.valueOf(half), 0, find(operands, "1/4"))));
+    }
+
+    private static Operand find(OperandTable operands, String text) {
+        for (int i = 0; i < operands.size(); i++) {
+            if (operands.get(i).getText().equals(text)) {
+                return operands.get(i);
+            }
+        }
+        throw new AssertionError(text);
+    }
+
+    private static Fraction apply(Fraction a, int op, Fraction b) {
+        switch (op) {
+            case 0:
+                return a.add(b);
+            case 1:
+                return a.subtract(b);
+            case 2:
+                return a.multiply(b);
+            default:
+                return a.divide(b);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+import com.mathgenerator.generator.ParallelGenerator;
+import com.mathgenerator.model.Fraction;
+import com.mathgenerator.service.ExpressionEvaluator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @date: 2025/03/27
+ * @description: 测试多线程生成题目
+ */
+public class ParallelGeneratorTest {
+    @Test
+    public void testGenerateExactlyN() {
+        for (int threads : new int[]{1, 4}) {
+            Map<String, Fraction> expressions = new ParallelGenerator(10, threads).generate(3000);
+            assertEquals(3000, expressions.size());
+            expressions.forEach((expression, result) ->
+                    assertEquals(ExpressionEvaluator.evaluate(expression), result, expression));
+        }
+    }
+
+    @Test
+    public void testStreamToConsumer() throws IOException {
+        Set<String> seen = new HashSet<>();
+        int[] count = {0};
+        new ParallelGenerator(10, 3).generate(2000, (expression, result) -> {
+            assertTrue(seen.add(expression), expression);
+            count[0]++;
+        });
+        assertEquals(2000, count[0]);
+    }
+
+    @Test
+    public void testSeededShards() {
+        for (boolean backward : new boolean[]{false, true}) {
+            Set<String> all = new HashSet<>();
+            Map<Fraction, Integer> shardOfAnswer = new HashMap<>();
+            for (int shard = 0; shard < 3; shard++) {
+                ParallelGenerator generator = shardGenerator(shard, 4, backward);
+                Map<String, Fraction> problems = generator.generate(2000);
+                List<String> first = new ArrayList<>(problems.keySet());
+                // 同一种子、同一分片总是得到相同的题目和顺序，与线程数无关
+                assertEquals(first, new ArrayList<>(shardGenerator(shard, 1, backward).generate(2000).keySet()));
+                for (String expression : first) {
+                    // 不同分片的题目互不重复
+                    assertTrue(all.add(expression), expression);
+                }
+                // 按答案分片：每个答案只出现在一个分片中
+                for (Fraction answer : problems.values()) {
+                    Integer previous = shardOfAnswer.put(answer, shard);
+                    assertTrue(previous == null || previous == shard, answer.toString());
+                }
+                if (backward) {
+                    // 倒推生成只为本片的答案生成，不需要生成其他分片的题目再丢弃
+                    long candidates = Long.parseLong(generator.statistics().split(" ")[1]);
+                    assertTrue(candidates < 2 * 2000, generator.statistics());
+                }
+            }
+        }
+        ParallelGenerator other = new ParallelGenerator(10, 1);
+        other.setSeed(43);
+        assertFalse(other.generate(2000).keySet().equals(shardGenerator(0, 1, false).generate(2000).keySet()));
+    }
+
+    private static ParallelGenerator shardGenerator(int shard, int threads, boolean backward) {
+        ParallelGenerator generator = new ParallelGenerator(10, threads);
+        generator.setSeed(42);
+        generator.setShard(shard, 3);
+        generator.setBackwardOnly(backward);
+        return generator;
+    }
+}
@@ -0,0 +1,67 @@
+import com.mathgenerator.generator.ParallelGenerator;
+import com.mathgenerator.handler.FileHandler;
+import com.mathgenerator.handler.ProblemMerger;
+import com.mathgenerator.model.Fraction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @date: 2025/04/07
+ * @description: 测试合并多组题目和答案文件
+ */
+public class ProblemMergerTest {
+    @Test
+    public void testMergeShards(@TempDir Path dir) throws IOException {
+        for (int shard = 0; shard < 2; shard++) {
+            ParallelGenerator generator = new ParallelGenerator(10, 1);
+            generator.setSeed(7);
+            generator.setShard(shard, 2);
+            Map<String, Fraction> expressions = generator.generate(1000);
+            FileHandler.writeProblems(expressions, dir.resolve("e" + shard + ".txt").toString(),
+                    dir.resolve("a" + shard + ".txt").toString());
+        }
+        List<String> shards = Arrays.asList(
+                dir.resolve("e0.txt").toString(), dir.resolve("a0.txt").toString(),
+                dir.resolve("e1.txt").toString(), dir.resolve("a1.txt").toString());
+        ProblemMerger once = new ProblemMerger(0);
+        once.merge(shards, dir.resolve("e.txt").toString(), dir.resolve("a.txt").toString());
+        assertEquals(2000, once.getRead());
+        // 标准形式重新标准化后不变，分片之间没有重复
+        assertEquals(2000, once.getWritten());
+
+        // 第 0 片合并两次，重复的题目只保留一次
+        List<String> inputs = new ArrayList<>(shards);
+        inputs.addAll(shards.subList(0, 2));
+        for (long memory : new long[]{0, 1024}) {
+            ProblemMerger merger = new ProblemMerger(memory);
+            merger.merge(inputs, dir.resolve("e.txt").toString(), dir.resolve("a.txt").toString());
+            assertEquals(3000, merger.getRead());
+            assertEquals(once.getWritten(), merger.getWritten());
+
+            List<String> exercises = Files.readAllLines(dir.resolve("e.txt"), StandardCharsets.UTF_8);
+            assertEquals(once.getWritten(), exercises.size());
+            Set<String> seen = new HashSet<>();
+            for (int i = 0; i < exercises.size(); i++) {
+                assertTrue(exercises.get(i).startsWith("题目" + (i + 1) + ": "));
+                assertTrue(seen.add(exercises.get(i).substring(exercises.get(i).indexOf(':'))));
+            }
+            FileHandler.gradeAnswers(dir.resolve("e.txt").toString(), dir.resolve("a.txt").toString(),
+                    dir.resolve("g.txt").toString());
+            assertTrue(Files.readAllLines(dir.resolve("g.txt"), StandardCharsets.UTF_8).get(0).startsWith("Correct: " + once.getWritten() + " "));
+        }
+    }
+}
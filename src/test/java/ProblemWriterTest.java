@@ -0,0 +1,29 @@
+import com.mathgenerator.generator.ParallelGenerator;
+import com.mathgenerator.handler.FileHandler;
+import com.mathgenerator.model.Fraction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * @date: 2025/03/28
+ * @description: 测试题目和答案的单次写入
+ */
+public class ProblemWriterTest {
+    @Test
+    public void testSameOutputAsSeparateWriters(@TempDir Path dir) throws IOException {
+        Map<String, Fraction> expressions = new ParallelGenerator(10, 1, true).generate(5000);
+        FileHandler.writeExpressions(expressions, dir.resolve("e1.txt").toString());
+        FileHandler.writeAnswers(expressions, dir.resolve("a1.txt").toString());
+        FileHandler.writeProblems(expressions, dir.resolve("e2.txt").toString(), dir.resolve("a2.txt").toString());
+
+        assertArrayEquals(Files.readAllBytes(dir.resolve("e1.txt")), Files.readAllBytes(dir.resolve("e2.txt")));
+        assertArrayEquals(Files.readAllBytes(dir.resolve("a1.txt")), Files.readAllBytes(dir.resolve("a2.txt")));
+    }
+}
@@ -0,0 +1,87 @@
+import com.mathgenerator.generator.ParallelGenerator;
+import com.mathgenerator.handler.FileHandler;
+import com.mathgenerator.handler.ProblemMerger;
+import com.mathgenerator.handler.SortingProblemMerger;
+import com.mathgenerator.model.Fraction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @date: 2025/04/08
+ * @description: 测试外部排序方式合并多组题目和答案文件
+ */
+public class SortingProblemMergerTest {
+    @Test
+    public void testMatchesHashMerge(@TempDir Path dir) throws IOException {
+        for (int shard = 0; shard < 2; shard++) {
+            ParallelGenerator generator = new ParallelGenerator(10, 1);
+            generator.setSeed(11);
+            generator.setShard(shard, 2);
+            Map<String, Fraction> expressions = generator.generate(1000);
+            FileHandler.writeProblems(expressions, dir.resolve("e" + shard + ".txt").toString(),
+                    dir.resolve("a" + shard + ".txt").toString());
+        }
+        // 第 0 片合并两次，重复的题目只保留一次
+        List<String> inputs = Arrays.asList(
+                dir.resolve("e0.txt").toString(), dir.resolve("a0.txt").toString(),
+                dir.resolve("e1.txt").toString(), dir.resolve("a1.txt").toString(),
+                dir.resolve("e0.txt").toString(), dir.resolve("a0.txt").toString());
+        ProblemMerger expected = new ProblemMerger(0);
+        expected.merge(inputs, dir.resolve("he.txt").toString(), dir.resolve("ha.txt").toString());
+        Set<String> problems = problems(dir.resolve("he.txt"), dir.resolve("ha.txt"));
+
+        // 4 KB 的预算产生超过 64 个段，需要两趟归并
+        for (long memory : new long[]{4096, 0}) {
+            SortingProblemMerger merger = new SortingProblemMerger(memory);
+            merger.merge(inputs, dir.resolve("e.txt").toString(), dir.resolve("a.txt").toString());
+            assertEquals(3000, merger.getRead());
+            assertEquals(expected.getWritten(), merger.getWritten());
+            if (memory > 0) {
+                assertTrue(merger.getRuns() > 64, String.valueOf(merger.getRuns()));
+                assertEquals(2, merger.getPasses());
+            } else {
+                assertEquals(1, merger.getRuns());
+                assertEquals(1, merger.getPasses());
+            }
+
+            List<String> exercises = Files.readAllLines(dir.resolve("e.txt"), StandardCharsets.UTF_8);
+            for (int i = 0; i < exercises.size(); i++) {
+                assertTrue(exercises.get(i).startsWith("题目" + (i + 1) + ": "));
+            }
+            assertEquals(problems, problems(dir.resolve("e.txt"), dir.resolve("a.txt")));
+            FileHandler.gradeAnswers(dir.resolve("e.txt").toString(), dir.resolve("a.txt").toString(),
+                    dir.resolve("g.txt").toString());
+            assertTrue(Files.readAllLines(dir.resolve("g.txt"), StandardCharsets.UTF_8).get(0)
+                    .startsWith("Correct: " + expected.getWritten() + " "));
+        }
+    }
+
+    /**
+     * @return 去掉编号后的"题目 = 答案"集合
+     */
+    private static Set<String> problems(Path exerciseFile, Path answerFile) throws IOException {
+        List<String> exercises = Files.readAllLines(exerciseFile, StandardCharsets.UTF_8);
+        List<String> answers = Files.readAllLines(answerFile, StandardCharsets.UTF_8);
+        assertEquals(exercises.size(), answers.size());
+        Set<String> problems = new HashSet<>();
+        for (int i = 0; i < exercises.size(); i++) {
+            String exercise = exercises.get(i);
+            String answer = answers.get(i);
+            assertTrue(problems.add(exercise.substring(exercise.indexOf(':')) + answer.substring(answer.indexOf(':'))));
+        }
+        return problems;
+    }
+}
@@ -0,0 +1,74 @@
+import com.mathgenerator.generator.ParallelGenerator;
+import com.mathgenerator.util.LongPairs;
+import com.mathgenerator.util.SpillingLongPairSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @date: 2025/04/04
+ * @description: 测试超出内存预算时写入临时文件的去重集合
+ */
+public class SpillingLongPairSetTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testSortPairs() {
+        SplittableRandom random = new SplittableRandom(1);
+        long[] pairs = new long[2000];
+        for (int i = 0; i < pairs.length; i++) {
+            // 高位取值少，低位决定大部分顺序
+            pairs[i] = i % 2 == 0 ? random.nextInt(3) - 1 : random.nextLong();
+        }
+        LongPairs.sort(pairs, pairs.length / 2);
+        for (int i = 1; i < pairs.length / 2; i++) {
+            assertTrue(LongPairs.compare(pairs[i * 2 - 2], pairs[i * 2 - 1], pairs[i * 2], pairs[i * 2 + 1]) <= 0);
+        }
+    }
+
+    @Test
+    public void testSpillAndMerge() throws IOException {
+        // 热层只有 64 个槽位，每 48 个键写出一个段
+        try (SpillingLongPairSet set = new SpillingLongPairSet(1024, tempDir)) {
+            for (long i = 0; i < 10000; i++) {
+                assertTrue(set.add(i * 0x9E3779B97F4A7C15L, i & 3));
+            }
+            assertTrue(set.getSpills() > 100);
+            assertTrue(set.getMerges() > 0);
+            // 按层归并，每个键只被重写对数次，而不是每次归并都重写全部的键
+            assertTrue(set.getMergedKeys() < 5 * 10000, String.valueOf(set.getMergedKeys()));
+            for (long i = 0; i < 10000; i++) {
+                assertFalse(set.add(i * 0x9E3779B97F4A7C15L, i & 3));
+            }
+            assertTrue(set.contains(0, 0));
+            assertFalse(set.contains(1, 1));
+            assertEquals(10000, set.size());
+        }
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void testStreamWithMemoryBudget() throws IOException {
+        for (int threads : new int[]{1, 4}) {
+            ParallelGenerator generator = new ParallelGenerator(10, threads);
+            generator.setMemoryBudget(64 * 1024);
+            Set<String> seen = new HashSet<>();
+            generator.generate(20000, (expression, result) -> assertTrue(seen.add(expression), expression));
+            assertEquals(20000, seen.size());
+        }
+    }
+}